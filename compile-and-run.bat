@@ -29,7 +29,7 @@ if not exist "%BIN_DIR%" (
 
 REM Compile
 echo Compiling Java files...
-javac --module-path "%JAVAFX_PATH%" --add-modules javafx.controls -d "%BIN_DIR%" "%SRC_DIR%\model\*.java" "%SRC_DIR%\service\*.java" "%SRC_DIR%\*.java"
+javac --module-path "%JAVAFX_PATH%" --add-modules javafx.controls -d "%BIN_DIR%" "%SRC_DIR%\model\*.java" "%SRC_DIR%\service\*.java" "%SRC_DIR%\ui\*.java" "%SRC_DIR%\loadtest\*.java" "%SRC_DIR%\*.java"
 
 if %errorlevel% equ 0 (
     echo Compilation successful!
@@ -39,6 +39,8 @@ javac --module-path "$JAVAFX_PATH" \
       -d "$BIN_DIR" \
       "$SRC_DIR/model/*.java" \
       "$SRC_DIR/service/*.java" \
+      "$SRC_DIR/ui/*.java" \
+      "$SRC_DIR/loadtest/*.java" \
       "$SRC_DIR/*.java"
 
 if [ $? -eq 0 ]; then
@@ -1,17 +1,52 @@
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import model.Product;
 import model.ComputerPart;
 import model.Accessory;
+import service.BatchAction;
+import service.DiskCatalog;
+import service.ExportFormat;
+import service.ExportProgress;
+import service.InventoryAggregates;
+import service.InventoryReport;
+import service.LoadReport;
+import service.LocationRollup;
+import service.Mutation;
+import service.MutationListener;
 import service.ProductManager;
+import service.ProductStore;
+import service.ReportEngine;
+import service.StockAlert;
+import service.StockMovementLog;
+import service.UpdateFeed;
+import service.ReplicationPrimary;
+import service.ReplicationReplica;
+import ui.PagedProductList;
 import exception.DataFileException;
 import exception.InvalidProductException;
 
@@ -22,12 +57,35 @@ import exception.InvalidProductException;
 public class MainApp extends Application {
     
     private ProductManager productManager;
+    private ProductStore store;           // productManager, or diskCatalog in disk mode
+    private DiskCatalog diskCatalog;
+    private LoadReport loadReport;
     private TableView<Product> tableView;
-    private TextField nameField, categoryField, priceField, quantityField;
+    private PagedProductList tableRows;
+    private TextField nameField, categoryField, priceField, quantityField, reorderPointField;
     private ComboBox<String> typeComboBox;
     private Button addButton, updateButton, deleteButton, clearButton;
+    private Button adjustPriceButton, setQuantityButton;
+    private Button addLocationButton, transferButton;
     private Label statusLabel;
     private ProgressIndicator progressIndicator;
+    private ProgressBar exportProgressBar;
+    private Button exportButton, cancelExportButton, updatesButton;
+    private ListView<String> lowStockList;
+    private ComboBox<String> locationBox;
+    private Label lowStockLabel;
+    private ComboBox<String> historyCategoryBox;
+    private TextField historyProductField;
+    private Spinner<Integer> historyDaysSpinner;
+    private ComboBox<StockMovementLog.Metric> historyMetricBox;
+    private BarChart<String, Number> historyChart;
+    private ComboBox<ReportEngine.GroupBy> groupByComboBox;
+    private Spinner<Integer> topNSpinner;
+    private TableView<InventoryReport.Group> groupTable;
+    private ListView<String> topProductsList;
+    private Label percentileLabel, reportTimingLabel;
+    private ReplicationPrimary replicationPrimary;
+    private ReplicationReplica replicationReplica;
     
     @Override
     public void start(Stage primaryStage) {
@@ -39,7 +97,25 @@ public class MainApp extends Application {
             @Override
             protected Void call() throws Exception {
                 try {
+                    // Optional --disk-catalog=<dir> [--cache-mb=<n>] keeps products on disk
+                    // with only the hot pages in memory (no reports, history or export)
+                    String catalogDir = getParameters().getNamed().get("disk-catalog");
+                    if (catalogDir != null) {
+                        openDiskCatalog(new File(catalogDir),
+                            Long.parseLong(getParameters().getNamed().getOrDefault("cache-mb", "64")));
+                        return null;
+                    }
+                    
                     productManager = new ProductManager();
+                    productManager.enableMovementLog("data/movements");
+                    // Optional --compress-snapshots=<1-9> stores products.txt as deflated blocks
+                    String compression = getParameters().getNamed().get("compress-snapshots");
+                    if (compression != null) {
+                        productManager.setSnapshotCompression(Integer.parseInt(compression));
+                    }
+                    startReplication(getParameters().getNamed());
+                    store = productManager;
+                    loadReport = productManager.getLastLoadReport();
                 } catch (DataFileException e) {
                     throw e;
                 }
@@ -65,6 +141,75 @@ public class MainApp extends Application {
         new Thread(loadTask).start();
     }
     
+    // A new catalog is filled from the regular data file once; after that it is used as is
+    private void openDiskCatalog(File directory, long cacheMegabytes) throws DataFileException {
+        diskCatalog = new DiskCatalog(directory, cacheMegabytes << 20);
+        File snapshot = new File("data/products.txt");
+        if (diskCatalog.getProductCount() == 0 && snapshot.exists()) {
+            loadReport = diskCatalog.importSnapshot(snapshot);
+        }
+        store = diskCatalog;
+    }
+    
+    // Optional replication: --replicate-port=<port> serves this store as the primary,
+    // --replica-of=<host>:<port> keeps this store in sync with another counter
+    private void startReplication(Map<String, String> params) throws java.io.IOException {
+        String port = params.get("replicate-port");
+        if (port != null) {
+            replicationPrimary = new ReplicationPrimary(productManager, Integer.parseInt(port));
+        }
+        
+        String primary = params.get("replica-of");
+        if (primary != null) {
+            int colon = primary.lastIndexOf(':');
+            replicationReplica = new ReplicationReplica(productManager,
+                primary.substring(0, colon), Integer.parseInt(primary.substring(colon + 1)));
+            // Mutations and snapshots arrive on the replication thread; refresh the table on
+            // the FX thread
+            productManager.addMutationListener(new MutationListener() {
+                @Override
+                public void onMutations(List<Mutation> batch) {
+                    Platform.runLater(() -> refreshReplicaView());
+                }
+                
+                @Override
+                public void onSnapshot(long offset) {
+                    Platform.runLater(() -> refreshReplicaView());
+                }
+            });
+            replicationReplica.start();
+        }
+    }
+    
+    private void refreshReplicaView() {
+        if (tableView != null) {
+            refreshTable();
+        }
+    }
+    
+    @Override
+    public void stop() throws Exception {
+        if (tableRows != null) {
+            tableRows.dispose();
+        }
+        if (replicationReplica != null) {
+            replicationReplica.close();
+        }
+        if (replicationPrimary != null) {
+            replicationPrimary.close();
+        }
+        if (productManager != null) {
+            productManager.flushSales();
+            productManager.saveLocations();
+        }
+        if (productManager != null && productManager.getMovementLog() != null) {
+            productManager.getMovementLog().close();
+        }
+        if (diskCatalog != null) {
+            diskCatalog.close();
+        }
+    }
+    
     private void showLoadingScreen(Stage stage) {
         VBox loadingBox = new VBox(20);
         loadingBox.setAlignment(Pos.CENTER);
@@ -98,15 +243,27 @@ public class MainApp extends Application {
         titleBox.setPadding(new Insets(0, 0, 15, 0));
         root.setTop(titleBox);
         
-        // Center - Table View
+        // Inventory tab - Table View with the CRUD form on the right
         tableView = createTableView();
         VBox tableBox = new VBox(10, new Label("Current Inventory:"), tableView);
+        if (productManager != null) {
+            tableBox.getChildren().add(1, createLocationBar());
+            tableBox.getChildren().add(createLowStockPanel());
+        }
         tableBox.setPadding(new Insets(10));
-        root.setCenter(tableBox);
-        
-        // Right - Form for CRUD operations
+        VBox.setVgrow(tableView, Priority.ALWAYS);
         VBox formBox = createFormPanel();
-        root.setRight(formBox);
+        BorderPane inventoryPane = new BorderPane(tableBox, null, formBox, null, null);
+        
+        // Center - Tabs for inventory management and reports
+        Tab inventoryTab = new Tab("Inventory", inventoryPane);
+        TabPane tabPane = new TabPane(inventoryTab);
+        if (productManager != null) {
+            tabPane.getTabs().add(new Tab("Reports", createReportsPanel()));
+            tabPane.getTabs().add(new Tab("Stock History", createHistoryPanel()));
+        }
+        tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        root.setCenter(tabPane);
         
         // Bottom - Status bar with progress indicator
         HBox statusBox = createStatusBar();
@@ -117,8 +274,39 @@ public class MainApp extends Application {
         primaryStage.setScene(scene);
         primaryStage.setTitle("Computer Parts Store Manager");
         
+        // Live low-stock alerts (fired on the thread that changed the quantity)
+        if (productManager != null) {
+            productManager.addStockAlertListener(alert -> Platform.runLater(() -> showStockAlert(alert)));
+            // A replica only changes through the primary's log; edit on the primary instead
+            if (productManager.isReadOnly()) {
+                for (Button button : new Button[] {addButton, updateButton, deleteButton, adjustPriceButton,
+                        setQuantityButton, updatesButton, addLocationButton, transferButton}) {
+                    button.setDisable(true);
+                }
+                primaryStage.setTitle("Computer Parts Store Manager (read-only replica)");
+            }
+        } else {
+            exportButton.setDisable(true);
+            updatesButton.setDisable(true);
+            adjustPriceButton.setDisable(true);
+            setQuantityButton.setDisable(true);
+        }
+        
         // Load initial data
         refreshTable();
+        showLoadWarnings(loadReport);
+    }
+    
+    // Rows skipped while loading are reported once, with their line numbers
+    private void showLoadWarnings(LoadReport report) {
+        if (report == null || !report.hasErrors()) {
+            return;
+        }
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Data File Warnings");
+        alert.setHeaderText(report.getSummary());
+        alert.setContentText(report.getDetails(10));
+        alert.show();
     }
     
     private TableView<Product> createTableView() {
@@ -165,10 +353,10 @@ public class MainApp extends Application {
         quantityCol.setCellValueFactory(new PropertyValueFactory<>("quantity"));
         quantityCol.setPrefWidth(80);
         
-        // Total Value Column
+        // Total Value Column (a paged row is null when the catalog shrank since the last fetch)
         TableColumn<Product, Double> valueCol = new TableColumn<>("Total Value");
-        valueCol.setCellValueFactory(cellData -> 
-            new javafx.beans.property.SimpleDoubleProperty(
+        valueCol.setCellValueFactory(cellData -> cellData.getValue() == null ? null
+            : new javafx.beans.property.SimpleDoubleProperty(
                 cellData.getValue().getTotalValue()).asObject());
         valueCol.setPrefWidth(100);
         
@@ -178,18 +366,86 @@ public class MainApp extends Application {
         table.getColumns().add(detailCol);
         table.getColumns().add(priceCol);
         table.getColumns().add(quantityCol);
+        
+        // Quantity at the location picked above the table (in-memory catalog only)
+        if (productManager != null) {
+            TableColumn<Product, Integer> locationCol = new TableColumn<>("At Location");
+            locationCol.setCellValueFactory(cellData -> cellData.getValue() == null ? null
+                : new javafx.beans.property.SimpleIntegerProperty(
+                    quantityAtSelectedLocation(cellData.getValue())).asObject());
+            locationCol.setPrefWidth(90);
+            table.getColumns().add(locationCol);
+        }
         table.getColumns().add(valueCol);
         
+        // Rows are fetched page by page from the ProductManager, so the table never
+        // holds the whole catalog; the paged list is read-only, so no column sorting
+        for (TableColumn<Product, ?> column : table.getColumns()) {
+            column.setSortable(false);
+        }
+        tableRows = new PagedProductList(store);
+        table.setItems(tableRows);
+        
+        // Several rows can be selected for the batch actions (in-memory catalog only)
+        if (productManager != null) {
+            table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        }
+        
         // Handle row selection
         table.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
             if (newSelection != null) {
                 loadProductToForm(newSelection);
             }
         });
+        // A selected row may still be a placeholder, or may now hold another product after a
+        // refresh; load the form once its page arrives, but leave edits to the same product
+        tableRows.addListener((ListChangeListener<Product>) change -> {
+            int selected = table.getSelectionModel().getSelectedIndex();
+            while (change.next()) {
+                if (change.wasUpdated() && selected >= change.getFrom() && selected < change.getTo()) {
+                    Product shown = table.getSelectionModel().getSelectedItem();
+                    Product loaded = tableRows.get(selected);
+                    if (loaded != null && (shown == null || shown.getId() != loaded.getId())) {
+                        loadProductToForm(loaded);
+                    }
+                }
+            }
+        });
         
         return table;
     }
     
+    // Location picker for the "At Location" column, plus adding locations and moving stock
+    private HBox createLocationBar() {
+        locationBox = new ComboBox<>();
+        locationBox.getItems().setAll(productManager.getLocations());
+        locationBox.getSelectionModel().select(0);
+        locationBox.setOnAction(e -> tableView.refresh());
+        
+        addLocationButton = createStyledButton("Add Location\u2026", "#16a085");
+        addLocationButton.setMaxWidth(Region.USE_PREF_SIZE);
+        addLocationButton.setOnAction(e -> handleAddLocation());
+        transferButton = createStyledButton("Transfer\u2026", "#16a085");
+        transferButton.setMaxWidth(Region.USE_PREF_SIZE);
+        transferButton.setOnAction(e -> handleTransfer());
+        
+        HBox locationBar = new HBox(10, new Label("Location:"), locationBox, addLocationButton, transferButton);
+        locationBar.setAlignment(Pos.CENTER_LEFT);
+        return locationBar;
+    }
+    
+    private int quantityAtSelectedLocation(Product product) {
+        if (product == null) {
+            return 0;
+        }
+        int location = locationBox == null ? 0 : Math.max(0, locationBox.getSelectionModel().getSelectedIndex());
+        try {
+            return productManager.getQuantityAt(product.getId(), location);
+        } catch (InvalidProductException e) {
+            return 0;  // Deleted since its page was fetched
+        }
+    }
+    
     private VBox createFormPanel() {
         VBox formBox = new VBox(10);
         formBox.setPadding(new Insets(10, 0, 10, 15));
@@ -224,17 +480,25 @@ public class MainApp extends Application {
         quantityField.setPromptText("Quantity");
         quantityField.setStyle("-fx-padding: 8;");
         
+        reorderPointField = new TextField();
+        reorderPointField.setPromptText("Reorder Point (optional)");
+        reorderPointField.setStyle("-fx-padding: 8;");
+        
         // Buttons
         addButton = createStyledButton("Add Product", "#27ae60");
         updateButton = createStyledButton("Update Product", "#3498db");
         deleteButton = createStyledButton("Delete Product", "#e74c3c");
         clearButton = createStyledButton("Clear Form", "#95a5a6");
+        adjustPriceButton = createStyledButton("Adjust Price %\u2026", "#d35400");
+        setQuantityButton = createStyledButton("Set Quantity\u2026", "#d35400");
         
         // Button actions
         addButton.setOnAction(e -> handleAdd());
         updateButton.setOnAction(e -> handleUpdate());
         deleteButton.setOnAction(e -> handleDelete());
         clearButton.setOnAction(e -> clearForm());
+        adjustPriceButton.setOnAction(e -> handleAdjustPrice());
+        setQuantityButton.setOnAction(e -> handleSetQuantity());
         
         // Add all to form
         formBox.getChildren().addAll(
@@ -245,13 +509,141 @@ public class MainApp extends Application {
             new Label("Category/Brand:"), categoryField,
             new Label("Price:"), priceField,
             new Label("Quantity:"), quantityField,
+            new Label("Reorder Point:"), reorderPointField,
+            new Separator(),
+            addButton, updateButton, deleteButton, clearButton,
             new Separator(),
-            addButton, updateButton, deleteButton, clearButton
+            new Label("Selected Products:"), adjustPriceButton, setQuantityButton
         );
         
         return formBox;
     }
     
+    private VBox createReportsPanel() {
+        VBox reportsBox = new VBox(10);
+        reportsBox.setPadding(new Insets(10));
+        
+        // Report options
+        groupByComboBox = new ComboBox<>();
+        groupByComboBox.getItems().addAll(ReportEngine.GroupBy.values());
+        groupByComboBox.setValue(ReportEngine.GroupBy.TYPE);
+        
+        topNSpinner = new Spinner<>(1, 100, 10);
+        topNSpinner.setEditable(true);
+        topNSpinner.setPrefWidth(80);
+        
+        Button runReportButton = createStyledButton("Run Report", "#8e44ad");
+        runReportButton.setMaxWidth(Region.USE_PREF_SIZE);
+        runReportButton.setOnAction(e -> handleRunReport());
+        
+        Button locationRollupButton = createStyledButton("Location Rollup", "#16a085");
+        locationRollupButton.setMaxWidth(Region.USE_PREF_SIZE);
+        locationRollupButton.setOnAction(e -> handleLocationRollup());
+        
+        HBox optionsBox = new HBox(10,
+            new Label("Group by:"), groupByComboBox,
+            new Label("Top N:"), topNSpinner,
+            runReportButton, locationRollupButton);
+        optionsBox.setAlignment(Pos.CENTER_LEFT);
+        
+        // Group subtotals
+        groupTable = new TableView<>();
+        TableColumn<InventoryReport.Group, String> keyCol = new TableColumn<>("Group");
+        keyCol.setCellValueFactory(new PropertyValueFactory<>("key"));
+        keyCol.setPrefWidth(180);
+        TableColumn<InventoryReport.Group, Integer> countCol = new TableColumn<>("Products");
+        countCol.setCellValueFactory(new PropertyValueFactory<>("productCount"));
+        countCol.setPrefWidth(90);
+        TableColumn<InventoryReport.Group, Long> unitsCol = new TableColumn<>("Units");
+        unitsCol.setCellValueFactory(new PropertyValueFactory<>("units"));
+        unitsCol.setPrefWidth(90);
+        TableColumn<InventoryReport.Group, String> groupValueCol = new TableColumn<>("Value ($)");
+        groupValueCol.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(
+            String.format("%.2f", cellData.getValue().getValue())));
+        groupValueCol.setPrefWidth(120);
+        groupTable.getColumns().add(keyCol);
+        groupTable.getColumns().add(countCol);
+        groupTable.getColumns().add(unitsCol);
+        groupTable.getColumns().add(groupValueCol);
+        
+        // Top products by value
+        topProductsList = new ListView<>();
+        topProductsList.setPrefWidth(360);
+        
+        HBox resultsBox = new HBox(10,
+            new VBox(5, new Label("Subtotals:"), groupTable),
+            new VBox(5, new Label("Top Products by Value:"), topProductsList));
+        VBox.setVgrow(resultsBox, Priority.ALWAYS);
+        
+        percentileLabel = new Label("Run a report to see price percentiles.");
+        reportTimingLabel = new Label();
+        reportTimingLabel.setStyle("-fx-text-fill: #7f8c8d;");
+        
+        reportsBox.getChildren().addAll(optionsBox, new Separator(), resultsBox, percentileLabel, reportTimingLabel);
+        return reportsBox;
+    }
+    
+    private VBox createLowStockPanel() {
+        lowStockLabel = new Label("Low Stock:");
+        lowStockLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #d35400;");
+        
+        lowStockList = new ListView<>();
+        lowStockList.setPrefHeight(110);
+        
+        return new VBox(5, lowStockLabel, lowStockList);
+    }
+    
+    private VBox createHistoryPanel() {
+        VBox historyBox = new VBox(10);
+        historyBox.setPadding(new Insets(10));
+        
+        // Query options: category (blank = all), optional product id, window and metric
+        historyCategoryBox = new ComboBox<>();
+        historyCategoryBox.setEditable(true);
+        historyCategoryBox.setPromptText("All categories");
+        historyCategoryBox.setOnShowing(e -> {
+            StockMovementLog log = productManager.getMovementLog();
+            if (log != null) {
+                historyCategoryBox.getItems().setAll(log.getCategories());
+            }
+        });
+        
+        historyProductField = new TextField();
+        historyProductField.setPromptText("Product ID (optional)");
+        historyProductField.setPrefWidth(140);
+        
+        historyDaysSpinner = new Spinner<>(7, 365, 90);
+        historyDaysSpinner.setEditable(true);
+        historyDaysSpinner.setPrefWidth(80);
+        
+        historyMetricBox = new ComboBox<>();
+        historyMetricBox.getItems().addAll(StockMovementLog.Metric.values());
+        historyMetricBox.setValue(StockMovementLog.Metric.UNITS_SOLD);
+        
+        Button showButton = createStyledButton("Show", "#16a085");
+        showButton.setMaxWidth(Region.USE_PREF_SIZE);
+        showButton.setOnAction(e -> handleShowHistory());
+        
+        HBox optionsBox = new HBox(10,
+            new Label("Category/Brand:"), historyCategoryBox, historyProductField,
+            new Label("Days:"), historyDaysSpinner, historyMetricBox, showButton);
+        optionsBox.setAlignment(Pos.CENTER_LEFT);
+        
+        // One bar per day
+        CategoryAxis dayAxis = new CategoryAxis();
+        dayAxis.setLabel("Day");
+        NumberAxis unitsAxis = new NumberAxis();
+        historyChart = new BarChart<>(dayAxis, unitsAxis);
+        historyChart.setLegendVisible(false);
+        historyChart.setAnimated(false);
+        historyChart.setBarGap(0);
+        historyChart.setCategoryGap(1);
+        VBox.setVgrow(historyChart, Priority.ALWAYS);
+        
+        historyBox.getChildren().addAll(optionsBox, new Separator(), historyChart);
+        return historyBox;
+    }
+    
     private HBox createStatusBar() {
         HBox statusBox = new HBox(10);
         statusBox.setPadding(new Insets(10, 0, 0, 0));
@@ -264,7 +656,25 @@ public class MainApp extends Application {
         progressIndicator.setMaxSize(20, 20);
         progressIndicator.setVisible(false);
         
-        statusBox.getChildren().addAll(statusLabel, progressIndicator);
+        // Export controls on the right; progress and cancel only show while exporting
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        
+        exportProgressBar = new ProgressBar(0);
+        exportProgressBar.setPrefWidth(160);
+        exportProgressBar.setVisible(false);
+        
+        cancelExportButton = new Button("Cancel");
+        cancelExportButton.setVisible(false);
+        
+        exportButton = new Button("Export\u2026");
+        exportButton.setOnAction(e -> handleExport());
+        
+        updatesButton = new Button("Apply Updates\u2026");
+        updatesButton.setOnAction(e -> handleApplyUpdates());
+        
+        statusBox.getChildren().addAll(statusLabel, progressIndicator, spacer,
+            exportProgressBar, cancelExportButton, updatesButton, exportButton);
         return statusBox;
     }
     
@@ -303,12 +713,13 @@ public class MainApp extends Application {
                     String detail = categoryField.getText().trim();
                     double price = Double.parseDouble(priceField.getText().trim());
                     int quantity = Integer.parseInt(quantityField.getText().trim());
+                    int reorderPoint = parseReorderPoint();
                     
                     if (name.isEmpty() || detail.isEmpty()) {
                         throw new InvalidProductException("Please fill all fields!");
                     }
                     
-                    int id = productManager.getNextId();
+                    int id = store.getNextId();
                     Product product;
                     
                     // Polymorphism: Create appropriate product type
@@ -317,11 +728,12 @@ public class MainApp extends Application {
                     } else {
                         product = new Accessory(id, name, detail, price, quantity);
                     }
+                    product.setReorderPoint(reorderPoint);
                     
-                    productManager.addProduct(product);  // May throw exceptions
+                    store.addProduct(product);  // May throw exceptions
                     
                 } catch (NumberFormatException e) {
-                    errorMessage = "Invalid price or quantity format!";
+                    errorMessage = "Invalid price, quantity or reorder point format!";
                     throw new Exception(errorMessage);
                 } catch (InvalidProductException | DataFileException e) {
                     errorMessage = e.getMessage();
@@ -352,7 +764,7 @@ public class MainApp extends Application {
     }
     
     private void handleUpdate() {
-        Product selectedProduct = tableView.getSelectionModel().getSelectedItem();
+        Product selectedProduct = getSelectedProduct();
         if (selectedProduct == null) {
             showErrorDialog("Update Error", "Please select a product to update!");
             return;
@@ -369,6 +781,7 @@ public class MainApp extends Application {
                     String detail = categoryField.getText().trim();
                     double price = Double.parseDouble(priceField.getText().trim());
                     int quantity = Integer.parseInt(quantityField.getText().trim());
+                    int reorderPoint = parseReorderPoint();
                     
                     if (name.isEmpty() || detail.isEmpty()) {
                         throw new InvalidProductException("Please fill all fields!");
@@ -382,11 +795,12 @@ public class MainApp extends Application {
                     } else {
                         updatedProduct = new Accessory(selectedProduct.getId(), name, detail, price, quantity);
                     }
+                    updatedProduct.setReorderPoint(reorderPoint);
                     
-                    productManager.updateProduct(selectedProduct.getId(), updatedProduct);
+                    store.updateProduct(selectedProduct.getId(), updatedProduct);
                     
                 } catch (NumberFormatException e) {
-                    errorMessage = "Invalid price or quantity format!";
+                    errorMessage = "Invalid price, quantity or reorder point format!";
                     throw new Exception(errorMessage);
                 } catch (InvalidProductException | DataFileException e) {
                     errorMessage = e.getMessage();
@@ -417,11 +831,24 @@ public class MainApp extends Application {
     }
     
     private void handleDelete() {
-        Product selectedProduct = tableView.getSelectionModel().getSelectedItem();
+        Product selectedProduct = getSelectedProduct();
         if (selectedProduct == null) {
             showErrorDialog("Delete Error", "Please select a product to delete!");
             return;
         }
+        List<Integer> selectedIds = getSelectedIds();
+        if (selectedIds.size() > 1) {
+            Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
+            confirmDialog.setTitle("Confirm Delete");
+            confirmDialog.setHeaderText("Delete Products");
+            confirmDialog.setContentText("Are you sure you want to delete the " + selectedIds.size() + " selected products?");
+            confirmDialog.showAndWait().ifPresent(response -> {
+                if (response == ButtonType.OK) {
+                    runBatch(selectedIds, BatchAction.delete());
+                }
+            });
+            return;
+        }
         
         Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
         confirmDialog.setTitle("Confirm Delete");
@@ -435,7 +862,7 @@ public class MainApp extends Application {
                     @Override
                     protected Void call() throws Exception {
                         try {
-                            productManager.deleteProduct(selectedProduct.getId());
+                            store.deleteProduct(selectedProduct.getId());
                         } catch (DataFileException | InvalidProductException e) {
                             throw e;
                         }
@@ -465,10 +892,502 @@ public class MainApp extends Application {
         });
     }
     
+    private void handleAdjustPrice() {
+        List<Integer> selectedIds = getSelectedIds();
+        if (selectedIds.isEmpty()) {
+            showErrorDialog("Adjust Price Error", "Please select the products to reprice!");
+            return;
+        }
+        TextInputDialog dialog = new TextInputDialog("10");
+        dialog.setTitle("Adjust Price");
+        dialog.setHeaderText("Adjust the price of " + selectedIds.size() + " selected products");
+        dialog.setContentText("Change in percent (e.g. 10 or -15):");
+        dialog.showAndWait().ifPresent(text -> {
+            try {
+                runBatch(selectedIds, BatchAction.adjustPrice(Double.parseDouble(text.trim())));
+            } catch (NumberFormatException e) {
+                showErrorDialog("Adjust Price Error", "Invalid percentage format!");
+            }
+        });
+    }
+    
+    private void handleSetQuantity() {
+        List<Integer> selectedIds = getSelectedIds();
+        if (selectedIds.isEmpty()) {
+            showErrorDialog("Set Quantity Error", "Please select the products to restock!");
+            return;
+        }
+        TextInputDialog dialog = new TextInputDialog("0");
+        dialog.setTitle("Set Quantity");
+        dialog.setHeaderText("Set the quantity of " + selectedIds.size() + " selected products");
+        dialog.setContentText("Quantity:");
+        dialog.showAndWait().ifPresent(text -> {
+            try {
+                runBatch(selectedIds, BatchAction.setQuantity(Integer.parseInt(text.trim())));
+            } catch (NumberFormatException e) {
+                showErrorDialog("Set Quantity Error", "Invalid quantity format!");
+            }
+        });
+    }
+    
+    // Selected product, read from the catalog if its row is still a placeholder
+    private Product getSelectedProduct() {
+        int index = tableView.getSelectionModel().getSelectedIndex();
+        return index < 0 || index >= tableRows.size() ? null : tableRows.fetch(index);
+    }
+    
+    // IDs of every selected row (rows that are still placeholders are read from the catalog)
+    private List<Integer> getSelectedIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (int index : tableView.getSelectionModel().getSelectedIndices()) {
+            Product product = index < tableRows.size() ? tableRows.fetch(index) : null;
+            if (product != null) {
+                ids.add(product.getId());
+            }
+        }
+        return ids;
+    }
+    
+    // One background task, one write lock, one save and one refresh for the whole selection
+    private void runBatch(List<Integer> ids, BatchAction action) {
+        Task<Integer> batchTask = new Task<Integer>() {
+            @Override
+            protected Integer call() throws Exception {
+                return productManager.applyBatch(ids, action);
+            }
+            
+            @Override
+            protected void succeeded() {
+                Platform.runLater(() -> {
+                    refreshTable();
+                    clearForm();
+                    showStatus(String.format("Batch %s: %,d of %,d products changed",
+                        action, getValue(), ids.size()), "#3498db");
+                });
+            }
+            
+            @Override
+            protected void failed() {
+                Platform.runLater(() -> {
+                    showErrorDialog("Batch Error", getException().getMessage());
+                    showStatus("Batch " + action + " failed", "#e74c3c");
+                });
+            }
+        };
+        
+        executeTask(batchTask, "Applying batch " + action + " to " + ids.size() + " products...");
+    }
+    
+    private void handleRunReport() {
+        ReportEngine.GroupBy groupBy = groupByComboBox.getValue();
+        int topN = topNSpinner.getValue();
+        
+        // Multithreading: aggregations run on the fork/join pool, never on the FX thread
+        Task<InventoryReport> reportTask = new Task<InventoryReport>() {
+            @Override
+            protected InventoryReport call() {
+                return productManager.generateReport(groupBy, topN);
+            }
+            
+            @Override
+            protected void succeeded() {
+                Platform.runLater(() -> {
+                    showReport(getValue());
+                    showStatus("Report generated", "#8e44ad");
+                });
+            }
+            
+            @Override
+            protected void failed() {
+                Platform.runLater(() -> {
+                    showErrorDialog("Report Error", getException().getMessage());
+                    showStatus("Failed to generate report", "#e74c3c");
+                });
+            }
+        };
+        
+        executeTask(reportTask, "Generating report...");
+    }
+    
+    // Units, value and products stocked per location; the rollup runs on the fork/join pool
+    private void handleLocationRollup() {
+        Task<LocationRollup> rollupTask = new Task<LocationRollup>() {
+            @Override
+            protected LocationRollup call() {
+                return productManager.rollupLocations();
+            }
+            
+            @Override
+            protected void succeeded() {
+                Platform.runLater(() -> {
+                    LocationRollup rollup = getValue();
+                    groupTable.getItems().setAll(rollup.getLocations());
+                    topProductsList.getItems().clear();
+                    percentileLabel.setText(String.format("All locations: %,d units worth $%.2f",
+                        rollup.getTotalUnits(), rollup.getTotalValue()));
+                    reportTimingLabel.setText(String.format("%,d locations rolled up in %.1f ms",
+                        rollup.getLocations().size(), rollup.getElapsedNanos() / 1_000_000.0));
+                    showStatus("Location rollup generated", "#16a085");
+                });
+            }
+            
+            @Override
+            protected void failed() {
+                Platform.runLater(() -> {
+                    showErrorDialog("Location Rollup Error", getException().getMessage());
+                    showStatus("Failed to roll up locations", "#e74c3c");
+                });
+            }
+        };
+        
+        executeTask(rollupTask, "Rolling up locations...");
+    }
+    
+    private void handleAddLocation() {
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Add Location");
+        dialog.setHeaderText("Add a warehouse location");
+        dialog.setContentText("Name:");
+        dialog.showAndWait().ifPresent(name -> {
+            Task<Integer> addTask = new Task<Integer>() {
+                @Override
+                protected Integer call() throws Exception {
+                    return productManager.addLocation(name);
+                }
+                
+                @Override
+                protected void succeeded() {
+                    Platform.runLater(() -> {
+                        locationBox.getItems().setAll(productManager.getLocations());
+                        locationBox.getSelectionModel().select(getValue().intValue());
+                        tableView.refresh();
+                        showStatus("Location " + name.trim() + " added", "#16a085");
+                    });
+                }
+                
+                @Override
+                protected void failed() {
+                    Platform.runLater(() -> {
+                        showErrorDialog("Add Location Error", getException().getMessage());
+                        showStatus("Failed to add location", "#e74c3c");
+                    });
+                }
+            };
+            
+            executeTask(addTask, "Adding location...");
+        });
+    }
+    
+    // Move units of the selected product from one location to another
+    private void handleTransfer() {
+        Product selectedProduct = getSelectedProduct();
+        if (selectedProduct == null) {
+            showErrorDialog("Transfer Error", "Please select a product to transfer!");
+            return;
+        }
+        
+        ComboBox<String> fromBox = new ComboBox<>();
+        ComboBox<String> toBox = new ComboBox<>();
+        fromBox.getItems().setAll(productManager.getLocations());
+        toBox.getItems().setAll(productManager.getLocations());
+        fromBox.getSelectionModel().select(0);
+        toBox.getSelectionModel().select(Math.max(0, locationBox.getSelectionModel().getSelectedIndex()));
+        TextField quantityInput = new TextField();
+        quantityInput.setPromptText("Quantity");
+        
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("From:"), fromBox);
+        grid.addRow(1, new Label("To:"), toBox);
+        grid.addRow(2, new Label("Quantity:"), quantityInput);
+        
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Transfer Stock");
+        dialog.setHeaderText("Move stock of " + selectedProduct.getName());
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        
+        dialog.showAndWait().ifPresent(response -> {
+            if (response != ButtonType.OK) {
+                return;
+            }
+            int from = fromBox.getSelectionModel().getSelectedIndex();
+            int to = toBox.getSelectionModel().getSelectedIndex();
+            int quantity;
+            try {
+                quantity = Integer.parseInt(quantityInput.getText().trim());
+            } catch (NumberFormatException e) {
+                showErrorDialog("Transfer Error", "Invalid quantity format!");
+                return;
+            }
+            
+            // Multithreading: Perform transfer in background
+            Task<Void> transferTask = new Task<Void>() {
+                @Override
+                protected Void call() throws Exception {
+                    productManager.transferStock(selectedProduct.getId(), from, to, quantity);
+                    return null;
+                }
+                
+                @Override
+                protected void succeeded() {
+                    Platform.runLater(() -> {
+                        tableView.refresh();
+                        showStatus(String.format("Moved %d x %s from %s to %s", quantity,
+                            selectedProduct.getName(), fromBox.getValue(), toBox.getValue()), "#16a085");
+                    });
+                }
+                
+                @Override
+                protected void failed() {
+                    Platform.runLater(() -> {
+                        showErrorDialog("Transfer Error", getException().getMessage());
+                        showStatus("Failed to transfer stock", "#e74c3c");
+                    });
+                }
+            };
+            
+            executeTask(transferTask, "Transferring stock...");
+        });
+    }
+    
+    private void handleShowHistory() {
+        StockMovementLog log = productManager.getMovementLog();
+        if (log == null) {
+            showErrorDialog("Stock History", "Stock history is not being recorded.");
+            return;
+        }
+        String categoryText = historyCategoryBox.getEditor().getText().trim();
+        String category = categoryText.isEmpty() ? null : categoryText;
+        String productText = historyProductField.getText().trim();
+        int productId;
+        try {
+            productId = productText.isEmpty() ? -1 : Integer.parseInt(productText);
+        } catch (NumberFormatException e) {
+            showErrorDialog("Stock History", "Invalid product ID!");
+            return;
+        }
+        int days = historyDaysSpinner.getValue();
+        StockMovementLog.Metric metric = historyMetricBox.getValue();
+        
+        // Windows are whole UTC days ending with today
+        long dayMillis = StockMovementLog.DAY_MILLIS;
+        long to = Math.floorDiv(System.currentTimeMillis(), dayMillis) * dayMillis + dayMillis;
+        long from = to - days * dayMillis;
+        
+        // Multithreading: scan the mapped segments in the background
+        Task<long[]> historyTask = new Task<long[]>() {
+            @Override
+            protected long[] call() {
+                return log.aggregate(from, to, dayMillis, productId, category, metric);
+            }
+            
+            @Override
+            protected void succeeded() {
+                Platform.runLater(() -> {
+                    showHistory(getValue(), from, metric);
+                    showStatus("Stock history loaded", "#16a085");
+                });
+            }
+            
+            @Override
+            protected void failed() {
+                Platform.runLater(() -> {
+                    showErrorDialog("Stock History Error", getException().getMessage());
+                    showStatus("Failed to load stock history", "#e74c3c");
+                });
+            }
+        };
+        
+        executeTask(historyTask, "Loading stock history...");
+    }
+    
+    private void showHistory(long[] buckets, long from, StockMovementLog.Metric metric) {
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        for (int i = 0; i < buckets.length; i++) {
+            LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(from, StockMovementLog.DAY_MILLIS) + i);
+            series.getData().add(new XYChart.Data<>(day.format(DateTimeFormatter.ofPattern("MM-dd")), buckets[i]));
+        }
+        historyChart.getYAxis().setLabel(metric.toString());
+        historyChart.getData().setAll(Collections.singletonList(series));
+    }
+    
+    private void showReport(InventoryReport report) {
+        groupTable.getItems().setAll(report.getGroups());
+        
+        topProductsList.getItems().clear();
+        for (Product product : report.getTopByValue()) {
+            topProductsList.getItems().add(String.format("#%d %s - $%.2f",
+                product.getId(), product.getName(), product.getTotalValue()));
+        }
+        
+        StringBuilder percentiles = new StringBuilder("Price percentiles:");
+        double[] points = report.getPercentiles();
+        double[] prices = report.getPriceAtPercentile();
+        for (int i = 0; i < points.length; i++) {
+            percentiles.append(String.format("  p%.0f = $%.2f", points[i], prices[i]));
+        }
+        percentileLabel.setText(percentiles.toString());
+        reportTimingLabel.setText(String.format("%,d products aggregated in %.1f ms",
+            report.getProductCount(), report.getElapsedNanos() / 1_000_000.0));
+    }
+    
+    // Supplier feed: lines of id,newPrice,quantityDelta applied in batches, one save per batch
+    private void handleApplyUpdates() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Apply Supplier Updates");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Update files (*.csv, *.txt)", "*.csv", "*.txt"),
+            new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = fileChooser.showOpenDialog(tableView.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        
+        // Multithreading: parse and apply the feed in the background
+        Task<LoadReport> updatesTask = new Task<LoadReport>() {
+            @Override
+            protected LoadReport call() throws Exception {
+                try (UpdateFeed feed = new UpdateFeed(productManager)) {
+                    return feed.applyFile(file);
+                }
+            }
+            
+            @Override
+            protected void succeeded() {
+                Platform.runLater(() -> {
+                    refreshTable();
+                    LoadReport report = getValue();
+                    showStatus(String.format("Applied %,d updates from %s (%,d rejected)",
+                        report.getLoadedCount(), file.getName(), report.getRejectedCount()), "#27ae60");
+                    showLoadWarnings(report);
+                });
+            }
+            
+            @Override
+            protected void failed() {
+                Platform.runLater(() -> {
+                    showErrorDialog("Apply Updates Error", getException().getMessage());
+                    showStatus("Failed to apply updates", "#e74c3c");
+                });
+            }
+        };
+        
+        executeTask(updatesTask, "Applying updates from " + file.getName() + "...");
+    }
+    
+    private void handleExport() {
+        ChoiceDialog<String> filterDialog = new ChoiceDialog<>("All Products",
+            "All Products", "Computer Parts", "Accessories", "Low Stock Only");
+        filterDialog.setTitle("Export Products");
+        filterDialog.setHeaderText(null);
+        filterDialog.setContentText("Export:");
+        String filterName = filterDialog.showAndWait().orElse(null);
+        if (filterName == null) {
+            return;
+        }
+        
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Products");
+        FileChooser.ExtensionFilter csvFilter = new FileChooser.ExtensionFilter("CSV (*.csv)", "*.csv");
+        FileChooser.ExtensionFilter jsonFilter = new FileChooser.ExtensionFilter("JSON Lines (*.jsonl)", "*.jsonl");
+        fileChooser.getExtensionFilters().addAll(csvFilter, jsonFilter);
+        File file = fileChooser.showSaveDialog(tableView.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        
+        ExportFormat format = fileChooser.getSelectedExtensionFilter() == jsonFilter
+            || file.getName().endsWith(".jsonl") ? ExportFormat.JSON_LINES : ExportFormat.CSV;
+        Predicate<Product> filter = exportFilter(filterName);
+        
+        // Multithreading: stream the export in the background with progress and cancellation
+        Task<Long> exportTask = new Task<Long>() {
+            @Override
+            protected Long call() throws Exception {
+                Task<Long> task = this;
+                long written = 0;
+                boolean complete = false;
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    written = productManager.exportProducts(channel, format, filter, new ExportProgress() {
+                        @Override
+                        public void onProgress(long scanned, long total) {
+                            updateProgress(scanned, total);
+                        }
+                        
+                        @Override
+                        public boolean isCancelled() {
+                            return task.isCancelled();
+                        }
+                    });
+                    complete = !isCancelled();
+                } finally {
+                    if (!complete) {
+                        Files.deleteIfExists(file.toPath());  // Don't leave a partial export behind
+                    }
+                }
+                return written;
+            }
+            
+            @Override
+            protected void succeeded() {
+                Platform.runLater(() -> showStatus(String.format("Exported %,d products to %s",
+                    getValue(), file.getName()), "#27ae60"));
+            }
+            
+            @Override
+            protected void cancelled() {
+                Platform.runLater(() -> showStatus("Export cancelled", "#e67e22"));
+            }
+            
+            @Override
+            protected void failed() {
+                Platform.runLater(() -> {
+                    showErrorDialog("Export Error", getException().getMessage());
+                    showStatus("Failed to export products", "#e74c3c");
+                });
+            }
+        };
+        
+        exportProgressBar.progressProperty().bind(exportTask.progressProperty());
+        exportProgressBar.setVisible(true);
+        cancelExportButton.setVisible(true);
+        // Cooperative cancel: interrupting would close the channel mid-write (ClosedByInterruptException)
+        cancelExportButton.setOnAction(e -> exportTask.cancel(false));
+        exportButton.setDisable(true);
+        exportTask.runningProperty().addListener((obs, wasRunning, running) -> {
+            if (!running) {
+                exportProgressBar.progressProperty().unbind();
+                exportProgressBar.setVisible(false);
+                cancelExportButton.setVisible(false);
+                exportButton.setDisable(false);
+            }
+        });
+        
+        showStatus("Exporting products...", "#3498db");
+        new Thread(exportTask).start();
+    }
+    
+    private Predicate<Product> exportFilter(String filterName) {
+        switch (filterName) {
+            case "Computer Parts":
+                return product -> product instanceof ComputerPart;
+            case "Accessories":
+                return product -> product instanceof Accessory;
+            case "Low Stock Only":
+                return product -> product.getQuantity() < productManager.getReorderPoint(product);
+            default:
+                return null;
+        }
+    }
+    
     private void loadProductToForm(Product product) {
         nameField.setText(product.getName());
         priceField.setText(String.valueOf(product.getPrice()));
         quantityField.setText(String.valueOf(product.getQuantity()));
+        reorderPointField.setText(product.hasReorderPoint() ? String.valueOf(product.getReorderPoint()) : "");
         
         // Polymorphism: Load type-specific details
         if (product instanceof ComputerPart) {
@@ -485,18 +1404,51 @@ public class MainApp extends Application {
         categoryField.clear();
         priceField.clear();
         quantityField.clear();
+        reorderPointField.clear();
         typeComboBox.setValue("Computer Part");
         tableView.getSelectionModel().clearSelection();
         showStatus("Ready", "#27ae60");
     }
     
+    // Empty field means "use the category default"
+    private int parseReorderPoint() {
+        String text = reorderPointField.getText().trim();
+        return text.isEmpty() ? Product.NO_REORDER_POINT : Integer.parseInt(text);
+    }
+    
     private void refreshTable() {
-        tableView.getItems().clear();
-        tableView.getItems().addAll(productManager.getAllProducts());
+        tableRows.refresh();
+        if (diskCatalog != null) {
+            showStatus(String.format("Ready | Products: %d | Page cache: %d pages, %.1f of %d MB, hit rate %.1f%%",
+                diskCatalog.getProductCount(), diskCatalog.getCachedPages(),
+                diskCatalog.getCachedBytes() / 1048576.0, diskCatalog.getCacheBudgetBytes() >> 20,
+                diskCatalog.getHitRate() * 100), "#27ae60");
+            return;
+        }
+        refreshLowStock();
         
-        // Update status with total inventory value
-        double totalValue = productManager.getTotalInventoryValue();
-        showStatus(String.format("Ready | Total Inventory Value: $%.2f", totalValue), "#27ae60");
+        // Update status from the running aggregates (no rescan of the catalog)
+        InventoryAggregates.Snapshot totals = productManager.getAggregates();
+        showStatus(String.format("Ready | Products: %d | Units: %d | Total Inventory Value: $%.2f",
+            totals.getProductCount(), totals.getTotalUnits(), totals.getTotalValue()), "#27ae60");
+    }
+    
+    private void refreshLowStock() {
+        lowStockList.getItems().clear();
+        for (Product product : productManager.getLowStockProducts()) {
+            lowStockList.getItems().add(String.format("#%d %s - %d left (reorder at %d)",
+                product.getId(), product.getName(), product.getQuantity(),
+                productManager.getReorderPoint(product)));
+        }
+        lowStockLabel.setText("Low Stock: " + lowStockList.getItems().size() + " item(s)");
+    }
+    
+    private void showStockAlert(StockAlert alert) {
+        refreshLowStock();
+        if (alert.getKind() == StockAlert.Kind.LOW_STOCK) {
+            lowStockLabel.setText(lowStockLabel.getText() + " | New: " + alert.getProductName()
+                + " (" + alert.getQuantity() + " left)");
+        }
     }
     
     private void showStatus(String message, String color) {
@@ -0,0 +1,162 @@
+package loadtest;
+
+import model.Accessory;
+import model.ComputerPart;
+import model.Product;
+import service.BatchAction;
+import service.InventoryAggregates;
+import service.ProductManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Randomized check of the running inventory aggregates against a full recompute
+ * Demonstrates: Property-based checking with a reproducible seed
+ *
+ * Usage:
+ *   java -cp target/classes loadtest.AggregatesCheck [--option=value ...]
+ *
+ *   --ops=5000            random operations to apply
+ *   --seed=N              random seed (default: the current time; printed at start)
+ *   --check-every=100     compare the running snapshot with recompute() every N operations
+ *   --dir=path            working directory (default: a new temporary directory)
+ *
+ * Operations are adds, updates (including changes of type, category and brand), deletes
+ * and the occasional batch price change or batch delete, with prices that are not exact
+ * in binary so rounding errors would add up. After the last operation the data file is
+ * reloaded and its aggregates are compared as well. The exit status is 1 on the first
+ * mismatch, which is reported with the seed and the operation number to replay it.
+ */
+public class AggregatesCheck {
+    
+    // Compensated totals and subtotals stay within a micro-dollar of a full recompute
+    private static final double TOLERANCE = 1e-6;
+    private static final int MAX_PRODUCTS = 400;
+    private static final String[] CATEGORIES = {"CPU", "GPU", "RAM", "Storage", "Motherboard", "PSU"};
+    private static final String[] BRANDS = {"Logitech", "Corsair", "Razer", "SteelSeries"};
+    
+    private final int ops;
+    private final long seed;
+    private final int checkEvery;
+    private final File directory;
+    
+    private Random random;
+    private ProductManager manager;
+    
+    public AggregatesCheck(Map<String, String> options) throws IOException {
+        ops = Integer.parseInt(options.getOrDefault("ops", "5000"));
+        seed = Long.parseLong(options.getOrDefault("seed", Long.toString(System.currentTimeMillis())));
+        checkEvery = Integer.parseInt(options.getOrDefault("check-every", "100"));
+        directory = options.containsKey("dir") ? new File(options.get("dir"))
+                : Files.createTempDirectory("aggregates").toFile();
+        if (ops < 1 || checkEvery < 1) {
+            throw new IllegalArgumentException("Need ops and check-every >= 1");
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.err.println("Usage: AggregatesCheck [--ops=N] [--seed=N] [--check-every=N] [--dir=path]");
+                System.exit(2);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+        }
+        boolean passed = new AggregatesCheck(options).run();
+        System.exit(passed ? 0 : 1);
+    }
+    
+    public boolean run() throws Exception {
+        File dataFile = new File(directory, "products.txt");
+        Files.deleteIfExists(dataFile.toPath());
+        manager = new ProductManager(dataFile.getPath());
+        random = new Random(seed);
+        System.out.printf(Locale.ROOT, "Aggregates check: %d operations, seed %d, in %s%n", ops, seed, directory);
+        
+        int[] counts = new int[5];
+        for (int op = 1; op <= ops; op++) {
+            counts[applyRandomOperation()]++;
+            if (op % checkEvery == 0 || op == ops) {
+                if (!compare("after operation " + op, manager.getAggregates(), manager.recomputeAggregates())) {
+                    return false;
+                }
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d adds, %d updates, %d deletes, %d batch price changes, %d batch deletes%n",
+                counts[0], counts[1], counts[2], counts[3], counts[4]);
+        
+        ProductManager reloaded = new ProductManager(dataFile.getPath());
+        if (!compare("after reloading " + dataFile.getName(), reloaded.getAggregates(), manager.getAggregates())) {
+            return false;
+        }
+        InventoryAggregates.Snapshot totals = manager.getAggregates();
+        System.out.printf(Locale.ROOT, "%d products, %d units, $%.2f%n",
+                totals.getProductCount(), totals.getTotalUnits(), totals.getTotalValue());
+        System.out.println("PASSED");
+        return true;
+    }
+    
+    // Apply one operation and return its kind (index into the counts printed at the end)
+    private int applyRandomOperation() throws Exception {
+        List<Product> products = manager.getAllProducts();
+        int roll = random.nextInt(100);
+        if (products.isEmpty() || (roll < 40 && products.size() < MAX_PRODUCTS)) {
+            manager.addProduct(randomProduct(manager.getNextId()));
+            return 0;
+        }
+        Product target = products.get(random.nextInt(products.size()));
+        if (roll < 75) {
+            manager.updateProduct(target.getId(), randomProduct(target.getId()));
+            return 1;
+        }
+        if (roll < 95) {
+            manager.deleteProduct(target.getId());
+            return 2;
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (int i = random.nextInt(10) + 1; i > 0; i--) {
+            ids.add(products.get(random.nextInt(products.size())).getId());
+        }
+        if (roll < 98) {
+            manager.applyBatch(ids, BatchAction.adjustPrice(random.nextInt(41) - 20));
+            return 3;
+        }
+        manager.applyBatch(ids, BatchAction.delete());
+        return 4;
+    }
+    
+    private Product randomProduct(int id) {
+        // Cents plus a third of a cent: none of these are exact doubles
+        double price = random.nextInt(1_000_000) / 100.0 + 1.0 / 3;
+        int quantity = random.nextInt(200);
+        if (random.nextBoolean()) {
+            return new ComputerPart(id, "Part " + id, CATEGORIES[random.nextInt(CATEGORIES.length)], price, quantity);
+        }
+        return new Accessory(id, "Accessory " + id, BRANDS[random.nextInt(BRANDS.length)], price, quantity);
+    }
+    
+    private boolean compare(String when, InventoryAggregates.Snapshot actual, InventoryAggregates.Snapshot expected) {
+        if (actual.matches(expected, TOLERANCE)) {
+            return true;
+        }
+        System.out.printf(Locale.ROOT, "[FAIL] running aggregates differ from a full recompute %s (seed %d)%n",
+                when, seed);
+        System.out.printf(Locale.ROOT, "         running:   %d products, %d units, $%.6f, groups %s %s %s%n",
+                actual.getProductCount(), actual.getTotalUnits(), actual.getTotalValue(),
+                actual.getByType().keySet(), actual.getByCategory().keySet(), actual.getByBrand().keySet());
+        System.out.printf(Locale.ROOT, "         recompute: %d products, %d units, $%.6f, groups %s %s %s%n",
+                expected.getProductCount(), expected.getTotalUnits(), expected.getTotalValue(),
+                expected.getByType().keySet(), expected.getByCategory().keySet(), expected.getByBrand().keySet());
+        return false;
+    }
+}
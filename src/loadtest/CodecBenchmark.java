@@ -0,0 +1,169 @@
+package loadtest;
+
+import model.Accessory;
+import model.ComputerPart;
+import model.Product;
+import model.ProductCodec;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark for reading and writing data file rows through ProductCodec
+ * Demonstrates: Allocation measurement with ThreadMXBean, Single-pass parsing
+ *
+ * Usage:
+ *   java -cp target/classes loadtest.CodecBenchmark [--option=value ...]
+ *
+ *   --rows=100000         rows per round
+ *   --rounds=5            measured rounds (the first ones include JIT warm-up)
+ *
+ * Each round parses and writes the same rows twice: once the way the loader and the
+ * saver did it before the codec (split and trim the line, then split it again for the
+ * fields; build each row by string concatenation), and once through the codec (scan and
+ * decode; writeCSV into one reused builder). It prints the time and the bytes allocated
+ * per row by the benchmark thread for each of the four paths.
+ */
+public class CodecBenchmark {
+    
+    private final int rows;
+    private final int rounds;
+    
+    // Keeps results reachable so the JIT cannot drop the work
+    private long sink;
+    
+    public CodecBenchmark(Map<String, String> options) {
+        rows = Integer.parseInt(options.getOrDefault("rows", "100000"));
+        rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+        if (rows < 1 || rounds < 1) {
+            throw new IllegalArgumentException("Need rows and rounds >= 1");
+        }
+    }
+    
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.err.println("Usage: CodecBenchmark [--rows=N] [--rounds=N]");
+                System.exit(2);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+        }
+        new CodecBenchmark(options).run();
+    }
+    
+    public void run() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        List<Product> products = generateProducts();
+        List<String> lines = new ArrayList<>(rows);
+        for (Product product : products) {
+            lines.add(product.toCSV());
+        }
+        
+        System.out.printf(Locale.ROOT, "Codec benchmark: %,d rows per round%n%n", rows);
+        System.out.printf(Locale.ROOT, "%-6s %-6s %-14s %10s %12s%n", "round", "path", "method", "ns/row", "bytes/row");
+        
+        for (int round = 1; round <= rounds; round++) {
+            for (int path = 0; path < 4; path++) {
+                long bytes = threadBean.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                String method;
+                switch (path) {
+                    case 0:
+                        method = "split+trim";
+                        parseSplit(lines);
+                        break;
+                    case 1:
+                        method = "codec";
+                        parseCodec(lines);
+                        break;
+                    case 2:
+                        method = "concatenation";
+                        writeConcatenated(products);
+                        break;
+                    default:
+                        method = "codec";
+                        writeCodec(products);
+                        break;
+                }
+                long nanos = System.nanoTime() - start;
+                bytes = threadBean.getThreadAllocatedBytes(thread) - bytes;
+                System.out.printf(Locale.ROOT, "%-6d %-6s %-14s %10.1f %12.1f%n", round,
+                        path < 2 ? "parse" : "write", method, (double) nanos / rows, (double) bytes / rows);
+            }
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+    
+    // The loader before the codec: split once for the type, then fromCSV split the line again
+    private void parseSplit(List<String> lines) {
+        for (String line : lines) {
+            String type = line.split(",")[0].trim();
+            String[] parts = line.split(",");
+            int id = Integer.parseInt(parts[1].trim());
+            String name = parts[2].trim();
+            String detail = parts[3].trim();
+            double price = Double.parseDouble(parts[4].trim());
+            int quantity = Integer.parseInt(parts[5].trim());
+            Product product = "ComputerPart".equals(type)
+                    ? new ComputerPart(id, name, detail, price, quantity)
+                    : new Accessory(id, name, detail, price, quantity);
+            sink += product.getId();
+        }
+    }
+    
+    private void parseCodec(List<String> lines) {
+        ProductCodec codec = new ProductCodec();
+        for (String line : lines) {
+            Product product = null;
+            if (codec.scan(line) == null) {
+                product = codec.fieldEquals(ProductCodec.TYPE, "ComputerPart")
+                        ? ComputerPart.decode(codec) : Accessory.decode(codec);
+            }
+            sink += product != null ? product.getId() : 0;
+        }
+    }
+    
+    // The saver before the codec: one concatenated string per row
+    private void writeConcatenated(List<Product> products) {
+        for (Product product : products) {
+            String detail = product instanceof ComputerPart
+                    ? ((ComputerPart) product).getCategory() : ((Accessory) product).getBrand();
+            String row = product.getType() + "," + product.getId() + "," + product.getName() + ","
+                    + detail + "," + product.getPrice() + "," + product.getQuantity();
+            sink += row.length();
+        }
+    }
+    
+    private void writeCodec(List<Product> products) {
+        StringBuilder row = new StringBuilder(128);
+        for (Product product : products) {
+            row.setLength(0);
+            product.writeCSV(row);
+            sink += row.length();
+        }
+    }
+    
+    private List<Product> generateProducts() {
+        Random random = new Random(11);
+        List<Product> products = new ArrayList<>(rows);
+        for (int id = 1; id <= rows; id++) {
+            double price = random.nextInt(100_000) / 100.0;
+            int quantity = random.nextInt(100);
+            products.add(id % 2 == 0
+                    ? new ComputerPart(id, "Part " + id, "CPU", price, quantity)
+                    : new Accessory(id, "Accessory " + id, "Logitech", price, quantity));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,244 @@
+package loadtest;
+
+import model.ComputerPart;
+import model.Product;
+import service.ProductManager;
+import service.Reservation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention benchmark: many checkout threads hammering the stock of one hot product
+ * Demonstrates: Lock-free counters under contention, Lost-update detection
+ *
+ * Usage:
+ *   java -cp target/classes loadtest.ContentionTest [--option=value ...]
+ *
+ *   --threads=64          checkout threads, all on the same product
+ *   --products=1000       catalog size (generated into a fresh data file)
+ *   --duration=5          seconds per scenario
+ *   --dir=path            working directory (default: a new temporary directory)
+ *
+ * Scenarios, each followed by flushSales and a check of the live counter, the catalog,
+ * the running aggregates and a fresh load of products.txt against the number of units
+ * the threads were told they sold:
+ *   sell            sell(id, 1) in a loop
+ *   reserve         reserve(id, 1), then commit four times out of five and release otherwise
+ *   sell-out        sell(id, 1) against a small stock until it runs out; exactly that many succeed
+ *   read-update     getProductById + updateProduct with quantity - 1, the only way before
+ *                   the checkout path; reports how many sales were lost
+ *
+ * The exit status is 1 if any check fails (lost updates in read-update are expected).
+ */
+public class ContentionTest {
+    
+    private static final int SELL_OUT_STOCK = 100_000;
+    private static final int LARGE_STOCK = 1_000_000_000;
+    
+    private final int threads;
+    private final int productCount;
+    private final int durationSeconds;
+    private final File directory;
+    
+    private ProductManager manager;
+    private File dataFile;
+    private int hotId;
+    private final AtomicLong saves = new AtomicLong();
+    private boolean passed = true;
+    
+    public ContentionTest(Map<String, String> options) throws IOException {
+        threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+        productCount = Integer.parseInt(options.getOrDefault("products", "1000"));
+        durationSeconds = Integer.parseInt(options.getOrDefault("duration", "5"));
+        directory = options.containsKey("dir") ? new File(options.get("dir"))
+                : Files.createTempDirectory("contention").toFile();
+        if (threads < 1 || productCount < 1 || durationSeconds < 1) {
+            throw new IllegalArgumentException("Need threads, products and duration >= 1");
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.err.println("Usage: ContentionTest [--threads=N] [--products=N] [--duration=s] [--dir=path]");
+                System.exit(2);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+        }
+        boolean passed = new ContentionTest(options).run();
+        System.exit(passed ? 0 : 1);
+    }
+    
+    public boolean run() throws Exception {
+        dataFile = new File(directory, "products.txt");
+        seedCatalog();
+        manager = new ProductManager(dataFile.getPath());
+        manager.addMutationListener(batch -> saves.incrementAndGet());
+        hotId = productCount / 2 + 1;
+        
+        System.out.printf(Locale.ROOT, "Contention test: %d threads on product %d of %d, %ds per scenario, in %s%n",
+                threads, hotId, productCount, durationSeconds, directory);
+        
+        runScenario("sell", LARGE_STOCK, durationSeconds * 1000L, () -> manager.sell(hotId, 1));
+        runScenario("reserve", LARGE_STOCK, durationSeconds * 1000L, () -> {
+            Reservation reservation = manager.reserve(hotId, 1);
+            if (reservation == null) {
+                return false;
+            }
+            if (ThreadLocalRandom.current().nextInt(5) == 0) {
+                manager.release(reservation);
+                return false;
+            }
+            return manager.commit(reservation);
+        });
+        runScenario("sell-out", SELL_OUT_STOCK, 0, () -> manager.sell(hotId, 1));
+        runReadUpdate();
+        
+        System.out.println(passed ? "All checks passed" : "CHECKS FAILED");
+        return passed;
+    }
+    
+    // One attempt by a checkout thread; true if it sold a unit
+    interface Checkout {
+        boolean sell() throws Exception;
+    }
+    
+    // Run every thread for durationMillis, or until the stock is gone when it is 0
+    private void runScenario(String name, int stock, long durationMillis, Checkout checkout) throws Exception {
+        setQuantity(stock);
+        LongAdder attempts = new LongAdder();
+        LongAdder sold = new LongAdder();
+        long savesBefore = saves.get();
+        long elapsed = runThreads(() -> {
+            long deadline = System.nanoTime() + durationMillis * 1_000_000;
+            long localAttempts = 0;
+            long localSold = 0;
+            try {
+                while (durationMillis > 0 ? System.nanoTime() < deadline : manager.getAvailableQuantity(hotId) > 0) {
+                    localAttempts++;
+                    if (checkout.sell()) {
+                        localSold++;
+                    }
+                }
+            } catch (Exception e) {
+                fail(name + ": " + e);
+            }
+            attempts.add(localAttempts);
+            sold.add(localSold);
+        });
+        
+        manager.flushSales();
+        long flushes = saves.get() - savesBefore;
+        int expected = stock - (int) sold.sum();
+        System.out.printf(Locale.ROOT, "%-12s %,14d attempts %,14d sold %,12.0f ops/s   %,d saves (%,.0f sales per save)%n",
+                name, attempts.sum(), sold.sum(), attempts.sum() / (elapsed / 1e9), flushes,
+                flushes == 0 ? 0.0 : sold.sum() / (double) flushes);
+        if (durationMillis == 0) {
+            check(name + " sold exactly the stock", sold.sum() == stock);
+        }
+        check(name + " stock never negative", expected >= 0);
+        check(name + " live counter", manager.getAvailableQuantity(hotId) == expected
+                && manager.getReservedQuantity(hotId) == 0);
+        checkCatalog(name, expected);
+    }
+    
+    // The read-modify-write baseline: every thread reads the product and writes back quantity - 1
+    private void runReadUpdate() throws Exception {
+        setQuantity(LARGE_STOCK);
+        LongAdder updates = new LongAdder();
+        long elapsed = runThreads(() -> {
+            long deadline = System.nanoTime() + durationSeconds * 1_000_000_000L;
+            try {
+                while (System.nanoTime() < deadline) {
+                    Product product = manager.getProductById(hotId);
+                    manager.updateProduct(hotId, withQuantity(product, product.getQuantity() - 1));
+                    updates.increment();
+                }
+            } catch (Exception e) {
+                fail("read-update: " + e);
+            }
+        });
+        long recorded = LARGE_STOCK - manager.getProductById(hotId).getQuantity();
+        System.out.printf(Locale.ROOT, "%-12s %,14d attempts %,14d sold %,12.0f ops/s   %,d sales lost%n",
+                "read-update", updates.sum(), recorded, updates.sum() / (elapsed / 1e9), updates.sum() - recorded);
+    }
+    
+    // Start all threads together and return the nanoseconds until the last one finished
+    private long runThreads(Runnable body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                body.run();
+            }, "checkout-" + i);
+            workers[i].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
+    }
+    
+    private void checkCatalog(String name, int expected) throws Exception {
+        check(name + " catalog quantity", manager.getProductById(hotId).getQuantity() == expected);
+        check(name + " aggregates", manager.getAggregates().matches(manager.recomputeAggregates(),
+                1e-9 * Math.max(1, manager.getTotalInventoryValue())));
+        ProductManager reloaded = new ProductManager(dataFile.getPath());
+        check(name + " saved quantity", reloaded.getProductById(hotId).getQuantity() == expected);
+    }
+    
+    private void setQuantity(int quantity) throws Exception {
+        Product product = manager.getProductById(hotId);
+        manager.updateProduct(hotId, withQuantity(product, quantity));
+    }
+    
+    private static Product withQuantity(Product product, int quantity) {
+        Product copy = new ComputerPart(product.getId(), product.getName(),
+                ((ComputerPart) product).getCategory(), product.getPrice(), quantity);
+        copy.setReorderPoint(product.getReorderPoint());
+        return copy;
+    }
+    
+    private void seedCatalog() throws IOException {
+        StringBuilder row = new StringBuilder();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(dataFile))) {
+            for (int id = 1; id <= productCount; id++) {
+                row.setLength(0);
+                new ComputerPart(id, "Part " + id, "CPU", 10 + id % 500, 100).writeCSV(row);
+                writer.write(row.toString());
+                writer.newLine();
+            }
+        }
+    }
+    
+    private void check(String what, boolean ok) {
+        if (!ok) {
+            fail(what);
+        }
+    }
+    
+    private synchronized void fail(String what) {
+        passed = false;
+        System.out.println("FAILED: " + what);
+    }
+}
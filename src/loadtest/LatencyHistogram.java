@@ -0,0 +1,97 @@
+package loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size log-linear histogram of latencies in nanoseconds
+ * Demonstrates: Bucketed percentiles, Constant memory recording
+ *
+ * Each power of two is split into 32 linear sub-buckets, so every recorded value
+ * lands in a bucket no wider than about 3% of its magnitude. Recording is a couple
+ * of shifts and an array increment, so a clerk thread can record every operation
+ * of an hours-long soak without allocating. Not thread-safe: each thread keeps its
+ * own histogram and they are merged for reporting.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = 64 - SUB_BUCKET_BITS;
+    
+    private final long[] counts = new long[(MAGNITUDES + 2) * SUB_BUCKETS];
+    private long totalCount;
+    private long max;
+    private long sum;
+    
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucketOf(nanos)]++;
+        totalCount++;
+        sum += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+    
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+    
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        max = 0;
+    }
+    
+    public long getCount() {
+        return totalCount;
+    }
+    
+    public long getMax() {
+        return max;
+    }
+    
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+    
+    // Upper bound of the bucket holding the given percentile (0-100)
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+        rank = Math.max(1, Math.min(rank, totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+    
+    // Values below 2 × SUB_BUCKETS map one-to-one; above that, the top SUB_BUCKET_BITS + 1
+    // significant bits pick one of SUB_BUCKETS buckets within the value's power of two
+    private static int bucketOf(long value) {
+        int magnitude = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return magnitude * SUB_BUCKETS + (int) (value >>> magnitude);
+    }
+    
+    private static long upperBoundOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket - (long) magnitude * SUB_BUCKETS;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+}
@@ -0,0 +1,188 @@
+package loadtest;
+
+import exception.InvalidProductException;
+import model.Accessory;
+import model.ComputerPart;
+import model.Product;
+import model.ProductCodec;
+import service.ProductManager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark for loading data files with invalid rows
+ * Demonstrates: Error codes vs exceptions on a hot path
+ *
+ * Usage:
+ *   java -cp target/classes loadtest.LoadErrorsBenchmark [--option=value ...]
+ *
+ *   --rows=500000         rows in the generated data file
+ *   --invalid=10          percentage of rows that are rejected
+ *   --rounds=5            measured rounds (the first ones include JIT warm-up)
+ *   --dir=path            working directory (default: a new temporary directory)
+ *
+ * Invalid rows are spread evenly over a bad price, a missing name, an unknown type and a
+ * bad quantity. Each round decodes every line twice, once through the throwing
+ * fromCSV() API with a catch per bad row and once with scan() and decode(), which only
+ * record error codes, then times a full ProductManager load of the file.
+ */
+public class LoadErrorsBenchmark {
+    
+    private final int rows;
+    private final int invalidPercent;
+    private final int rounds;
+    private final File directory;
+    
+    public LoadErrorsBenchmark(Map<String, String> options) throws IOException {
+        rows = Integer.parseInt(options.getOrDefault("rows", "500000"));
+        invalidPercent = Integer.parseInt(options.getOrDefault("invalid", "10"));
+        rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+        directory = options.containsKey("dir") ? new File(options.get("dir"))
+                : Files.createTempDirectory("loaderrors").toFile();
+        if (rows < 1 || rounds < 1 || invalidPercent < 0 || invalidPercent > 100) {
+            throw new IllegalArgumentException("Need rows and rounds >= 1 and invalid in 0-100");
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.err.println("Usage: LoadErrorsBenchmark [--rows=N] [--invalid=percent] [--rounds=N] [--dir=path]");
+                System.exit(2);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+        }
+        new LoadErrorsBenchmark(options).run();
+    }
+    
+    public void run() throws Exception {
+        File dataFile = new File(directory, "products.txt");
+        writeDataFile(dataFile);
+        List<String> lines = Files.readAllLines(dataFile.toPath(), StandardCharsets.UTF_8);
+        
+        System.out.printf(Locale.ROOT, "Load errors benchmark: %,d rows, %d%% invalid, in %s%n%n",
+                rows, invalidPercent, directory);
+        System.out.printf(Locale.ROOT, "%-6s %14s %14s %14s %10s%n",
+                "round", "throwing ms", "error-code ms", "full load ms", "rejected");
+        
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            int thrown = decodeThrowing(lines);
+            long throwingNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            int rejected = decodeWithErrorCodes(lines);
+            long errorCodeNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            int loaded = loadQuietly(dataFile);
+            long loadNanos = System.nanoTime() - start;
+            
+            if (thrown != rejected || loaded != rows - rejected) {
+                throw new IllegalStateException("Paths disagree: " + thrown + " thrown, "
+                        + rejected + " rejected, " + loaded + " loaded");
+            }
+            System.out.printf(Locale.ROOT, "%-6d %14.1f %14.1f %14.1f %10d%n", round,
+                    throwingNanos / 1e6, errorCodeNanos / 1e6, loadNanos / 1e6, rejected);
+        }
+    }
+    
+    // The single-item API: one InvalidProductException per bad row
+    private static int decodeThrowing(List<String> lines) {
+        int failed = 0;
+        for (String line : lines) {
+            try {
+                if (line.startsWith("ComputerPart,")) {
+                    ComputerPart.fromCSV(line);
+                } else if (line.startsWith("Accessory,")) {
+                    Accessory.fromCSV(line);
+                } else {
+                    throw new InvalidProductException("Unknown product type: " + line);
+                }
+            } catch (InvalidProductException e) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+    
+    // The bulk path used by loadFromFile: bad rows only leave an error code on the codec
+    private static int decodeWithErrorCodes(List<String> lines) {
+        ProductCodec codec = new ProductCodec();
+        int failed = 0;
+        for (String line : lines) {
+            Product product = null;
+            if (codec.scan(line) == null) {
+                if (codec.fieldEquals(ProductCodec.TYPE, "ComputerPart")) {
+                    product = ComputerPart.decode(codec);
+                } else if (codec.fieldEquals(ProductCodec.TYPE, "Accessory")) {
+                    product = Accessory.decode(codec);
+                }
+            }
+            if (product == null) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+    
+    // Full load through ProductManager, without its one-line summary of the rejected rows
+    private static int loadQuietly(File dataFile) throws Exception {
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return new ProductManager(dataFile.getPath()).getAllProducts().size();
+        } finally {
+            System.setErr(err);
+        }
+    }
+    
+    private void writeDataFile(File dataFile) throws IOException {
+        Random random = new Random(7);
+        long invalidSoFar = 0;
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(dataFile, StandardCharsets.UTF_8))) {
+            for (int id = 1; id <= rows; id++) {
+                // Spread the invalid rows evenly instead of clustering them
+                boolean invalid = (long) id * invalidPercent / 100 > invalidSoFar;
+                if (invalid) {
+                    invalidSoFar++;
+                    out.write(invalidRow(id, (int) (invalidSoFar % 4)));
+                } else if (id % 2 == 0) {
+                    out.write("ComputerPart," + id + ",Part " + id + ",CPU,"
+                            + random.nextInt(100_000) / 100.0 + "," + random.nextInt(100));
+                } else {
+                    out.write("Accessory," + id + ",Accessory " + id + ",Logitech,"
+                            + random.nextInt(100_000) / 100.0 + "," + random.nextInt(100));
+                }
+                out.newLine();
+            }
+        }
+    }
+    
+    private static String invalidRow(int id, int kind) {
+        switch (kind) {
+            case 0:
+                return "ComputerPart," + id + ",Part " + id + ",CPU,abc,5";
+            case 1:
+                return "ComputerPart," + id + ",,CPU,1.0,5";
+            case 2:
+                return "Gadget," + id + ",Gadget " + id + ",Misc,1.0,1";
+            default:
+                return "Accessory," + id + ",Mouse " + id + ",Logitech,3.0,x";
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package loadtest;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import model.Accessory;
+import model.ComputerPart;
+import model.Product;
+import service.InventoryAggregates;
+import service.ProductManager;
+import service.StockMovementLog;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless soak and load test: concurrent clerks drive a ProductManager with a mix of operations
+ * Demonstrates: Open-loop load generation, Latency percentiles, Model-based invariant checking
+ *
+ * Usage:
+ *   java -cp target/classes loadtest.LoadTest [--option=value ...]
+ *
+ *   --threads=8           clerk threads
+ *   --products=2000       catalog size (generated into a fresh data file)
+ *   --duration=60         seconds to run, warmup included (hours: --duration=7200)
+ *   --warmup=10           seconds excluded from the latency percentiles
+ *   --rate=200            target operations per second across all clerks; 0 runs closed-loop
+ *   --mix=browse:80,sell:15,reprice:5   relative weights of the operations
+ *   --reprice-batch=20    products repriced by one bulk price update
+ *   --report=10           seconds between progress lines
+ *   --movements           also record stock movements in a StockMovementLog
+ *   --compress=0          deflate level (1-9) for saved snapshots; 0 saves plain text
+ *   --dir=path            working directory (default: a new temporary directory)
+ *
+ * In open-loop mode every operation has an intended start time on a fixed schedule and its
+ * latency is measured from that time, so a stall shows up as the queueing delay real clerks
+ * would see instead of silently lowering the offered load. Each clerk only writes to its own
+ * slice of product ids and tracks them in a ReferenceModel; when the run ends the manager, its
+ * running aggregates, a fresh load of products.txt and the movement log are all checked
+ * against the merged model. The exit status is 1 if any check fails.
+ */
+public class LoadTest {
+    
+    // Operations a clerk performs
+    enum Operation {
+        BROWSE,   // Read one page of the catalog
+        SELL,     // Sell 1-3 units of a product, or restock it when sold out
+        REPRICE   // Bulk price update over several products
+    }
+    
+    private static final int PAGE_SIZE = 50;
+    // Compensated totals and subtotals stay within a micro-dollar of a full recompute
+    private static final double AGGREGATE_TOLERANCE = 1e-6;
+    private static final String[] CATEGORIES = {"CPU", "GPU", "RAM", "Storage", "Motherboard", "PSU"};
+    private static final String[] BRANDS = {"Logitech", "Corsair", "Razer", "SteelSeries"};
+    
+    private final int threads;
+    private final int productCount;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final double rate;
+    private final int[] mixWeights;
+    private final int repriceBatch;
+    private final int reportSeconds;
+    private final boolean recordMovements;
+    private final int compressionLevel;
+    private final File directory;
+    
+    private final LongAdder[] completed = new LongAdder[Operation.values().length];
+    private final LongAdder errors = new LongAdder();
+    private final GcMonitor gcMonitor = new GcMonitor();
+    private volatile String firstError;
+    private ProductManager manager;
+    
+    public LoadTest(Map<String, String> options) throws IOException {
+        threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        productCount = Integer.parseInt(options.getOrDefault("products", "2000"));
+        durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        mixWeights = parseMix(options.getOrDefault("mix", "browse:80,sell:15,reprice:5"));
+        repriceBatch = Integer.parseInt(options.getOrDefault("reprice-batch", "20"));
+        reportSeconds = Integer.parseInt(options.getOrDefault("report", "10"));
+        recordMovements = options.containsKey("movements");
+        compressionLevel = Integer.parseInt(options.getOrDefault("compress", "0"));
+        directory = options.containsKey("dir") ? new File(options.get("dir"))
+                : Files.createTempDirectory("loadtest").toFile();
+        if (threads < 1 || productCount < threads || warmupSeconds >= durationSeconds) {
+            throw new IllegalArgumentException("Need threads >= 1, products >= threads and warmup < duration");
+        }
+        for (int i = 0; i < completed.length; i++) {
+            completed[i] = new LongAdder();
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.err.println("Usage: LoadTest [--threads=N] [--products=N] [--duration=s] [--warmup=s]"
+                        + " [--rate=ops/s] [--mix=browse:80,sell:15,reprice:5] [--reprice-batch=N]"
+                        + " [--report=s] [--movements] [--compress=level] [--dir=path]");
+                System.exit(2);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+        }
+        boolean passed = new LoadTest(options).run();
+        System.exit(passed ? 0 : 1);
+    }
+    
+    // Seed the catalog, run the clerks for the configured duration, then report and verify
+    public boolean run() throws Exception {
+        File dataFile = new File(directory, "products.txt");
+        File movementDir = new File(directory, "movements");
+        ReferenceModel[] models = seedCatalog(dataFile);
+        manager = new ProductManager(dataFile.getPath());
+        manager.setSnapshotCompression(compressionLevel);
+        if (recordMovements) {
+            manager.enableMovementLog(movementDir.getPath());
+        }
+        long startDataBytes = dataFile.length();
+        long startLogBytes = sizeOf(movementDir);
+        
+        System.out.printf(Locale.ROOT, "Load test: %d clerks, %d products, %ds (%ds warmup), %s, mix %s, compression %d, in %s%n",
+                threads, productCount, durationSeconds, warmupSeconds,
+                rate > 0 ? "open loop at " + rate + " ops/s" : "closed loop", describeMix(), compressionLevel, directory);
+        
+        gcMonitor.start();
+        long startNanos = System.nanoTime() + 50_000_000L;  // Let every clerk start before the schedule does
+        long measureFromNanos = startNanos + warmupSeconds * 1_000_000_000L;
+        long endNanos = startNanos + durationSeconds * 1_000_000_000L;
+        Clerk[] clerks = new Clerk[threads];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            clerks[i] = new Clerk(i, models[i], startNanos, measureFromNanos, endNanos);
+            workers[i] = new Thread(clerks[i], "clerk-" + i);
+            workers[i].start();
+        }
+        
+        // Progress lines until the clerks finish
+        long lastOps = 0;
+        long lastReport = startNanos;
+        while (System.nanoTime() < endNanos) {
+            long sleepNanos = Math.min(reportSeconds * 1_000_000_000L, endNanos - System.nanoTime());
+            if (sleepNanos > 0) {
+                Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+            }
+            long now = System.nanoTime();
+            long ops = totalCompleted();
+            System.out.printf(Locale.ROOT, "t=%4ds ops=%d (%.1f/s) errors=%d heap=%dMB gc=%s data=%s log=%s%n",
+                    (now - startNanos) / 1_000_000_000L, ops,
+                    (ops - lastOps) * 1e9 / Math.max(1, now - lastReport), errors.sum(), usedHeapMegabytes(),
+                    gcMonitor.summary(), formatBytes(dataFile.length()), formatBytes(sizeOf(movementDir)));
+            lastOps = ops;
+            lastReport = now;
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        gcMonitor.stop();
+        
+        // Latency and throughput over the measured window only
+        double measuredSeconds = durationSeconds - warmupSeconds;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-8s %10s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram merged = new LatencyHistogram();
+            for (Clerk clerk : clerks) {
+                merged.add(clerk.latencies[operation.ordinal()]);
+            }
+            all.add(merged);
+            printLatencies(operation.name(), merged, measuredSeconds);
+        }
+        printLatencies("ALL", all, measuredSeconds);
+        System.out.println();
+        System.out.println("Errors:     " + errors.sum() + (firstError != null ? " (first: " + firstError + ")" : ""));
+        System.out.println("GC:         " + gcMonitor.details());
+        System.out.println("Data file:  " + formatBytes(startDataBytes) + " -> " + formatBytes(dataFile.length()));
+        if (recordMovements) {
+            System.out.println("Movements:  " + formatBytes(startLogBytes) + " -> " + formatBytes(sizeOf(movementDir))
+                    + " allocated, " + manager.getMovementLog().size() + " rows");
+        }
+        
+        ReferenceModel expected = new ReferenceModel();
+        for (Clerk clerk : clerks) {
+            expected.merge(clerk.model);
+        }
+        return verify(expected, dataFile);
+    }
+    
+    // Compare the manager, its aggregates, the reloaded data file and the movement log with the model
+    private boolean verify(ReferenceModel expected, File dataFile) throws Exception {
+        System.out.println();
+        boolean passed = true;
+        
+        passed &= check("in-memory catalog matches model", expected.diff(manager.getAllProducts(), 10));
+        
+        List<String> aggregateProblems = new ArrayList<>();
+        InventoryAggregates.Snapshot recomputed = manager.recomputeAggregates();
+        if (!manager.getAggregates().matches(recomputed, AGGREGATE_TOLERANCE)) {
+            aggregateProblems.add("running totals differ from a full recompute");
+        }
+        passed &= check("running aggregates match a full recompute", aggregateProblems);
+        
+        ProductManager reloaded = new ProductManager(dataFile.getPath());
+        List<String> reloadProblems = new ArrayList<>();
+        if (reloaded.getLastLoadReport().hasErrors()) {
+            reloadProblems.add(reloaded.getLastLoadReport().getSummary());
+        }
+        reloadProblems.addAll(expected.diff(reloaded.getAllProducts(), 10));
+        passed &= check(dataFile.getName() + " reloads to the model", reloadProblems);
+        
+        StockMovementLog log = manager.getMovementLog();
+        if (log != null) {
+            List<String> logProblems = new ArrayList<>();
+            if (log.size() != expected.getExpectedMovements()) {
+                logProblems.add(log.size() + " rows logged, expected " + expected.getExpectedMovements());
+            }
+            passed &= check("movement log has one row per change", logProblems);
+            log.close();
+        }
+        
+        System.out.println(passed ? "PASSED" : "FAILED");
+        return passed;
+    }
+    
+    private static boolean check(String name, List<String> problems) {
+        System.out.println((problems.isEmpty() ? "[ok]   " : "[FAIL] ") + name);
+        for (String problem : problems) {
+            System.out.println("         " + problem);
+        }
+        return problems.isEmpty();
+    }
+    
+    // Write a generated catalog straight to the data file (adding products one by one would
+    // rewrite the file each time) and hand each clerk the model of the ids it owns
+    private ReferenceModel[] seedCatalog(File dataFile) throws IOException {
+        ReferenceModel[] models = new ReferenceModel[threads];
+        for (int i = 0; i < threads; i++) {
+            models[i] = new ReferenceModel();
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+        Random random = new Random(42);
+        StringBuilder row = new StringBuilder(128);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(dataFile))) {
+            for (int id = 1; id <= productCount; id++) {
+                double price = Math.round((5 + random.nextDouble() * 495) * 100) / 100.0;
+                int quantity = random.nextInt(101);
+                // Every tenth name needs quoting, so the codec's escaping is exercised too
+                String name = id % 10 == 0 ? "Item " + id + ", rev \"B\"" : "Item " + id;
+                Product product = id % 3 == 0
+                        ? new Accessory(id, name, BRANDS[random.nextInt(BRANDS.length)], price, quantity)
+                        : new ComputerPart(id, name, CATEGORIES[random.nextInt(CATEGORIES.length)], price, quantity);
+                row.setLength(0);
+                product.writeCSV(row);
+                writer.write(row.toString());
+                writer.newLine();
+                models[ownerOf(id)].put(id, quantity, price);
+            }
+        }
+        return models;
+    }
+    
+    // Clerk i owns ids i+1, i+1+threads, i+1+2*threads, ...
+    private int ownerOf(int id) {
+        return (id - 1) % threads;
+    }
+    
+    // One simulated clerk; all of its state is confined to its own thread
+    private final class Clerk implements Runnable {
+        private final int index;
+        private final ReferenceModel model;
+        private final long startNanos;
+        private final long measureFromNanos;
+        private final long endNanos;
+        private final Random random;
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        
+        Clerk(int index, ReferenceModel model, long startNanos, long measureFromNanos, long endNanos) {
+            this.index = index;
+            this.model = model;
+            this.startNanos = startNanos;
+            this.measureFromNanos = measureFromNanos;
+            this.endNanos = endNanos;
+            this.random = new Random(1000 + index);
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+        
+        @Override
+        public void run() {
+            // Each clerk offers rate / threads ops/s, phase-shifted so clerks do not arrive together
+            long interval = rate > 0 ? (long) (1e9 * threads / rate) : 0;
+            long next = startNanos + interval * index / threads;
+            LockSupport.parkNanos(startNanos - System.nanoTime());
+            while (true) {
+                long intended;
+                if (interval > 0) {
+                    intended = next;
+                    next += interval;
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    intended = System.nanoTime();
+                }
+                if (intended >= endNanos) {
+                    break;
+                }
+                
+                Operation operation = pickOperation();
+                try {
+                    perform(operation);
+                } catch (Exception e) {
+                    errors.increment();
+                    if (firstError == null) {
+                        firstError = operation + ": " + e;
+                    }
+                }
+                long latency = System.nanoTime() - intended;
+                if (intended >= measureFromNanos) {
+                    latencies[operation.ordinal()].record(latency);
+                }
+                completed[operation.ordinal()].increment();
+            }
+        }
+        
+        private Operation pickOperation() {
+            int pick = random.nextInt(mixWeights[mixWeights.length - 1]);
+            for (int i = 0; i < mixWeights.length; i++) {
+                if (pick < mixWeights[i]) {
+                    return Operation.values()[i];
+                }
+            }
+            return Operation.BROWSE;
+        }
+        
+        private void perform(Operation operation) throws Exception {
+            switch (operation) {
+                case BROWSE:
+                    int from = random.nextInt(Math.max(1, manager.getProductCount() - PAGE_SIZE + 1));
+                    manager.getProductsInRange(from, PAGE_SIZE);
+                    break;
+                case SELL:
+                    sell(ownedId());
+                    break;
+                case REPRICE:
+                    for (int i = 0; i < repriceBatch; i++) {
+                        reprice(ownedId());
+                    }
+                    break;
+            }
+        }
+        
+        private void sell(int id) throws Exception {
+            Product product = manager.getProductById(id);
+            int quantity = model.getQuantity(id);
+            int newQuantity = quantity == 0 ? 10 + random.nextInt(41) : quantity - Math.min(quantity, 1 + random.nextInt(3));
+            manager.updateProduct(id, withChanges(product, product.getPrice(), newQuantity));
+            model.put(id, newQuantity, model.getPrice(id));
+            model.recordMovement();
+        }
+        
+        private void reprice(int id) throws Exception {
+            Product product = manager.getProductById(id);
+            double price = model.getPrice(id);
+            double newPrice = Math.max(0.01, Math.round(price * (0.95 + random.nextDouble() * 0.1) * 100) / 100.0);
+            manager.updateProduct(id, withChanges(product, newPrice, product.getQuantity()));
+            model.put(id, model.getQuantity(id), newPrice);
+            if (newPrice != price) {
+                model.recordMovement();
+            }
+        }
+        
+        private int ownedId() {
+            int owned = (productCount - index - 1) / threads + 1;
+            return index + 1 + threads * random.nextInt(owned);
+        }
+    }
+    
+    // Copy of a product with a new price and quantity, keeping its type-specific fields
+    private static Product withChanges(Product product, double price, int quantity) {
+        Product copy;
+        if (product instanceof ComputerPart) {
+            copy = new ComputerPart(product.getId(), product.getName(),
+                    ((ComputerPart) product).getCategory(), price, quantity);
+        } else {
+            copy = new Accessory(product.getId(), product.getName(),
+                    ((Accessory) product).getBrand(), price, quantity);
+        }
+        copy.setReorderPoint(product.getReorderPoint());
+        return copy;
+    }
+    
+    // Records every collection reported by the JVM, per collector
+    private static final class GcMonitor {
+        private final Map<String, long[]> collectors = new LinkedHashMap<>();  // name -> {count, total ms, max ms}
+        private final List<Runnable> unsubscribe = new ArrayList<>();
+        
+        void start() {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (!(bean instanceof NotificationEmitter)) {
+                    continue;
+                }
+                NotificationEmitter emitter = (NotificationEmitter) bean;
+                NotificationListener listener = (notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        GarbageCollectionNotificationInfo info =
+                                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                        record(info.getGcName(), info.getGcInfo().getDuration());
+                    }
+                };
+                emitter.addNotificationListener(listener, null, null);
+                unsubscribe.add(() -> {
+                    try {
+                        emitter.removeNotificationListener(listener);
+                    } catch (ListenerNotFoundException ignored) {
+                        // Already removed
+                    }
+                });
+            }
+        }
+        
+        void stop() {
+            unsubscribe.forEach(Runnable::run);
+        }
+        
+        private synchronized void record(String collector, long millis) {
+            long[] stats = collectors.computeIfAbsent(collector, name -> new long[3]);
+            stats[0]++;
+            stats[1] += millis;
+            stats[2] = Math.max(stats[2], millis);
+        }
+        
+        synchronized String summary() {
+            long count = 0;
+            long total = 0;
+            for (long[] stats : collectors.values()) {
+                count += stats[0];
+                total += stats[1];
+            }
+            return count + "/" + total + "ms";
+        }
+        
+        synchronized String details() {
+            if (collectors.isEmpty()) {
+                return "no collections";
+            }
+            StringBuilder out = new StringBuilder();
+            for (Map.Entry<String, long[]> entry : collectors.entrySet()) {
+                long[] stats = entry.getValue();
+                if (out.length() > 0) {
+                    out.append("; ");
+                }
+                out.append(entry.getKey()).append(": ").append(stats[0]).append(" collections, ")
+                        .append(stats[1]).append(" ms total, ").append(stats[2]).append(" ms max");
+            }
+            return out.toString();
+        }
+    }
+    
+    private long totalCompleted() {
+        long total = 0;
+        for (LongAdder adder : completed) {
+            total += adder.sum();
+        }
+        return total;
+    }
+    
+    private static void printLatencies(String name, LatencyHistogram histogram, double seconds) {
+        System.out.printf(Locale.ROOT, "%-8s %10d %10.1f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                name, histogram.getCount(), histogram.getCount() / seconds,
+                histogram.getPercentile(50) / 1e6, histogram.getPercentile(90) / 1e6,
+                histogram.getPercentile(99) / 1e6, histogram.getPercentile(99.9) / 1e6,
+                histogram.getMax() / 1e6);
+    }
+    
+    // Cumulative weights in Operation order, e.g. "browse:80,sell:15,reprice:5" -> {80, 95, 100}
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[Operation.values().length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            weights[Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = Integer.parseInt(pair[1].trim());
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        if (weights[weights.length - 1] <= 0) {
+            throw new IllegalArgumentException("Operation mix must have a positive weight: " + mix);
+        }
+        return weights;
+    }
+    
+    private String describeMix() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < mixWeights.length; i++) {
+            int weight = mixWeights[i] - (i > 0 ? mixWeights[i - 1] : 0);
+            out.append(i > 0 ? "," : "").append(Operation.values()[i].name().toLowerCase(Locale.ROOT)).append(':').append(weight);
+        }
+        return out.toString();
+    }
+    
+    private static long usedHeapMegabytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+    }
+    
+    private static long sizeOf(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        if (file.isFile()) {
+            return file.length();
+        }
+        long total = 0;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                total += sizeOf(child);
+            }
+        }
+        return total;
+    }
+    
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1fKB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1fMB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,77 @@
+package loadtest;
+
+import model.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expected quantity and price of every product, maintained independently of ProductManager
+ * Demonstrates: Model-based checking
+ *
+ * Each clerk owns a disjoint slice of the product ids and keeps its own model of them,
+ * so no synchronization is needed while the test runs; the slices are merged at the
+ * end and compared with the manager and with a fresh load of the data file.
+ */
+public class ReferenceModel {
+    private final Map<Integer, double[]> expected = new HashMap<>();  // id -> {quantity, price}
+    private long expectedMovements;
+    
+    public void put(int id, int quantity, double price) {
+        expected.put(id, new double[] {quantity, price});
+    }
+    
+    public int getQuantity(int id) {
+        return (int) expected.get(id)[0];
+    }
+    
+    public double getPrice(int id) {
+        return expected.get(id)[1];
+    }
+    
+    public int size() {
+        return expected.size();
+    }
+    
+    // One movement-log row is expected per quantity or price change
+    public void recordMovement() {
+        expectedMovements++;
+    }
+    
+    public long getExpectedMovements() {
+        return expectedMovements;
+    }
+    
+    public void merge(ReferenceModel other) {
+        expected.putAll(other.expected);
+        expectedMovements += other.expectedMovements;
+    }
+    
+    // Describe every difference between the model and the given products (at most limit)
+    public List<String> diff(List<Product> products, int limit) {
+        List<String> problems = new ArrayList<>();
+        if (products.size() != expected.size()) {
+            problems.add("expected " + expected.size() + " products but found " + products.size());
+        }
+        for (Product product : products) {
+            if (problems.size() >= limit) {
+                break;
+            }
+            double[] state = expected.get(product.getId());
+            if (state == null) {
+                problems.add("unexpected product " + product.getId());
+            } else if (product.getQuantity() < 0) {
+                problems.add("product " + product.getId() + " has negative quantity");
+            } else if (product.getQuantity() != (int) state[0]) {
+                problems.add("product " + product.getId() + " quantity " + product.getQuantity()
+                        + ", expected " + (int) state[0]);
+            } else if (Math.abs(product.getPrice() - state[1]) > 1e-9 * Math.max(1.0, Math.abs(state[1]))) {
+                problems.add("product " + product.getId() + " price " + product.getPrice()
+                        + ", expected " + state[1]);
+            }
+        }
+        return problems;
+    }
+}
@@ -37,45 +37,68 @@ public class ComputerPart extends Product {
         return "ComputerPart";
     }
     
-    // Override validate to add category validation
+    // Override check to add category validation (validate() reports it too)
     @Override
-    public void validate() throws InvalidProductException {
-        super.validate();  // Call parent validation first
-        if (category == null || category.trim().isEmpty()) {
-            throw new InvalidProductException("Category cannot be empty");
+    public ValidationError check() {
+        ValidationError error = super.check();  // Call parent validation first
+        if (error == null && (category == null || category.trim().isEmpty())) {
+            error = ValidationError.EMPTY_CATEGORY;
+        } else if (error == null && hasLineBreak(category)) {
+            error = ValidationError.LINE_BREAK;
         }
+        return error;
     }
     
-    // Convert object to CSV string for file storage
+    // Append this product as one CSV row (shared codec handles quoting)
     @Override
-    public String toCSV() {
-        return getType() + "," + id + "," + name + "," + category + "," + price + "," + quantity;
+    public void writeCSV(StringBuilder out) {
+        ProductCodec.appendRow(out, getType(), id, name, category, price, quantity, reorderPoint);
     }
     
     // Create object from CSV string
     public static ComputerPart fromCSV(String csvLine) throws InvalidProductException {
-        try {
-            String[] parts = csvLine.split(",");
-            if (parts.length < 6) {
-                throw new InvalidProductException("Invalid CSV format: insufficient fields");
-            }
-            
-            // Skip the first field (type) and parse the rest
-            int id = Integer.parseInt(parts[1].trim());
-            String name = parts[2].trim();
-            String category = parts[3].trim();
-            double price = Double.parseDouble(parts[4].trim());
-            int quantity = Integer.parseInt(parts[5].trim());
-            
-            ComputerPart part = new ComputerPart(id, name, category, price, quantity);
-            part.validate();  // Validate after creation
-            return part;
-            
-        } catch (NumberFormatException e) {
-            throw new InvalidProductException("Invalid number format in CSV: " + csvLine, e);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new InvalidProductException("Invalid CSV format: " + csvLine, e);
+        ProductCodec codec = ProductCodec.forCurrentThread();
+        if (!codec.tokenize(csvLine)) {
+            throw new InvalidProductException("Invalid CSV format: unterminated quote: " + csvLine);
         }
+        return fromFields(codec);
+    }
+    
+    // Create object from a row already tokenized by the codec (no re-splitting)
+    public static ComputerPart fromFields(ProductCodec row) throws InvalidProductException {
+        ComputerPart part = decode(row);
+        if (part == null) {
+            throw row.toException();
+        }
+        return part;
+    }
+    
+    // Non-throwing decode for bulk loads: returns null and records the error on the row
+    public static ComputerPart decode(ProductCodec row) {
+        if (!row.checkProductFields()) {
+            return null;
+        }
+        
+        // Skip the first field (type) and parse the rest
+        int id = row.parseInt(ProductCodec.ID);
+        String name = row.getString(ProductCodec.NAME);
+        String category = row.getString(ProductCodec.DETAIL);
+        double price = row.parseDouble(ProductCodec.PRICE);
+        int quantity = row.parseInt(ProductCodec.QUANTITY);
+        int reorderPoint = row.hasField(ProductCodec.REORDER_POINT)
+            ? row.parseInt(ProductCodec.REORDER_POINT) : NO_REORDER_POINT;
+        if (row.hasError()) {
+            return null;
+        }
+        
+        ComputerPart part = new ComputerPart(id, name, category, price, quantity);
+        part.setReorderPoint(reorderPoint);
+        ValidationError error = part.check();  // Validate after creation
+        if (error != null) {
+            row.fail(error);
+            return null;
+        }
+        return part;
     }
     
     @Override
@@ -7,10 +7,14 @@ import exception.InvalidProductException;
  * Demonstrates: Polymorphism, Abstraction, Inheritance
  */
 public abstract class Product {
+    // Marks a product without its own reorder point (the category default applies)
+    public static final int NO_REORDER_POINT = -1;
+    
     protected int id;
     protected String name;
     protected double price;
     protected int quantity;
+    protected int reorderPoint = NO_REORDER_POINT;
     
     // Constructor
     public Product(int id, String name, double price, int quantity) {
@@ -27,19 +31,49 @@ public abstract class Product {
     
     // Abstract methods - must be implemented by child classes
     public abstract String getType();
-    public abstract String toCSV();
+    public abstract void writeCSV(StringBuilder out);
+    
+    // Convert object to CSV string for file storage (bulk writers call writeCSV directly)
+    public String toCSV() {
+        StringBuilder out = new StringBuilder(64);
+        writeCSV(out);
+        return out.toString();
+    }
     
-    // Concrete method - can be overridden by child classes
+    // Validate for the single-item API: throws on the first problem found
     public void validate() throws InvalidProductException {
+        ValidationError error = check();
+        if (error != null) {
+            throw new InvalidProductException(error.getMessage());
+        }
+    }
+    
+    // Non-throwing validation - can be overridden by child classes; returns null if valid
+    public ValidationError check() {
         if (name == null || name.trim().isEmpty()) {
-            throw new InvalidProductException("Product name cannot be empty");
+            return ValidationError.EMPTY_NAME;
+        }
+        if (hasLineBreak(name)) {
+            return ValidationError.LINE_BREAK;
+        }
+        if (!Double.isFinite(price)) {
+            return ValidationError.INVALID_PRICE;  // Would poison every total it is added to
         }
         if (price < 0) {
-            throw new InvalidProductException("Price cannot be negative");
+            return ValidationError.NEGATIVE_PRICE;
         }
         if (quantity < 0) {
-            throw new InvalidProductException("Quantity cannot be negative");
+            return ValidationError.NEGATIVE_QUANTITY;
+        }
+        if (reorderPoint < NO_REORDER_POINT) {
+            return ValidationError.NEGATIVE_REORDER_POINT;
         }
+        return null;
+    }
+    
+    // Records are framed one per line in the replication stream and the movement log
+    protected static boolean hasLineBreak(String text) {
+        return text != null && (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0);
     }
     
     // Common getters
@@ -59,6 +93,15 @@ public abstract class Product {
         return quantity;
     }
     
+    // Stock level below which the product should be reordered, or NO_REORDER_POINT
+    public int getReorderPoint() {
+        return reorderPoint;
+    }
+    
+    public boolean hasReorderPoint() {
+        return reorderPoint != NO_REORDER_POINT;
+    }
+    
     // Common setters
     public void setId(int id) {
         this.id = id;
@@ -76,6 +119,10 @@ public abstract class Product {
         this.quantity = quantity;
     }
     
+    public void setReorderPoint(int reorderPoint) {
+        this.reorderPoint = reorderPoint;
+    }
+    
     // Calculate total value (price × quantity)
     public double getTotalValue() {
         return price * quantity;
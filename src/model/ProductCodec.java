@@ -0,0 +1,402 @@
+package model;
+
+import exception.InvalidProductException;
+
+/**
+ * Single-pass, quote-aware CSV codec shared by all product types
+ * Demonstrates: Parsing, Reuse of buffers, RFC 4180 quoting
+ * 
+ * tokenize() scans a line once and only records where each field starts and ends;
+ * strings are materialized on demand and numbers are parsed straight from the
+ * characters. For bulk loads of dirty files, scan() and the parse methods never
+ * throw: they record the first ValidationError of the row on the codec instead.
+ * 
+ * A codec instance is reused line after line and is not thread-safe;
+ * forCurrentThread() hands out one instance per thread.
+ * 
+ * Row layout: type,id,name,detail,price,quantity[,reorderPoint]
+ */
+public final class ProductCodec {
+    public static final int TYPE = 0;
+    public static final int ID = 1;
+    public static final int NAME = 2;
+    public static final int DETAIL = 3;
+    public static final int PRICE = 4;
+    public static final int QUANTITY = 5;
+    public static final int REORDER_POINT = 6;
+    
+    private static final int MIN_FIELDS = 6;
+    private static final int MAX_FIELDS = 16;
+    
+    // Powers of ten that are exact doubles, for the fast decimal path
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private static final ThreadLocal<ProductCodec> PER_THREAD = ThreadLocal.withInitial(ProductCodec::new);
+    
+    private CharSequence line;
+    private int fieldCount;
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private final boolean[] quoted = new boolean[MAX_FIELDS];
+    private final StringBuilder unescaped = new StringBuilder();
+    private ValidationError error;
+    
+    // Reusable codec bound to the calling thread
+    public static ProductCodec forCurrentThread() {
+        return PER_THREAD.get();
+    }
+    
+    // ---------------------------------------------------------------- reading
+    
+    /**
+     * Split a line into fields in one pass. Returns false if the line ends inside a
+     * quoted field, meaning the record continues on the next line.
+     */
+    public boolean tokenize(CharSequence csvLine) throws InvalidProductException {
+        ValidationError result = scan(csvLine);
+        if (result == ValidationError.UNTERMINATED_QUOTE) {
+            return false;
+        }
+        if (result != null) {
+            throw toException();
+        }
+        return true;
+    }
+    
+    /**
+     * Non-throwing tokenize for bulk loads: returns null on success, UNTERMINATED_QUOTE
+     * if the record continues on the next line, or the structural error found.
+     */
+    public ValidationError scan(CharSequence csvLine) {
+        line = csvLine;
+        fieldCount = 0;
+        error = null;
+        int length = csvLine.length();
+        int pos = 0;
+        
+        while (true) {
+            if (fieldCount == MAX_FIELDS) {
+                return fail(ValidationError.TOO_MANY_FIELDS);
+            }
+            pos = skipBlanks(pos, length);
+            int field = fieldCount++;
+            
+            if (pos < length && csvLine.charAt(pos) == '"') {
+                // Quoted field: runs to the closing quote, "" is an escaped quote
+                int start = ++pos;
+                while (true) {
+                    if (pos >= length) {
+                        return fail(ValidationError.UNTERMINATED_QUOTE);
+                    }
+                    if (csvLine.charAt(pos) == '"') {
+                        if (pos + 1 < length && csvLine.charAt(pos + 1) == '"') {
+                            pos += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    pos++;
+                }
+                starts[field] = start;
+                ends[field] = pos;
+                quoted[field] = true;
+                pos = skipBlanks(pos + 1, length);
+                if (pos < length && csvLine.charAt(pos) != ',') {
+                    return fail(ValidationError.TEXT_AFTER_QUOTE);
+                }
+            } else {
+                int start = pos;
+                while (pos < length && csvLine.charAt(pos) != ',') {
+                    pos++;
+                }
+                int end = pos;
+                while (end > start && isBlank(csvLine.charAt(end - 1))) {
+                    end--;
+                }
+                starts[field] = start;
+                ends[field] = end;
+                quoted[field] = false;
+            }
+            
+            if (pos >= length) {
+                return null;
+            }
+            pos++;  // Skip the comma
+        }
+    }
+    
+    public int getFieldCount() {
+        return fieldCount;
+    }
+    
+    // ---------------------------------------------------------------- errors
+    
+    // First error recorded for the current row, or null
+    public ValidationError getError() {
+        return error;
+    }
+    
+    public boolean hasError() {
+        return error != null;
+    }
+    
+    // Record an error for the current row (the first one wins); returns it for chaining
+    public ValidationError fail(ValidationError validationError) {
+        if (error == null) {
+            error = validationError;
+        }
+        return error;
+    }
+    
+    // Build the exception for the single-item API boundary
+    public InvalidProductException toException() {
+        String message = error != null ? error.getMessage() : "Invalid CSV format";
+        return new InvalidProductException(message + ": " + line);
+    }
+    
+    // Non-throwing check for the six mandatory columns
+    public boolean checkProductFields() {
+        if (fieldCount < MIN_FIELDS) {
+            fail(ValidationError.MISSING_FIELDS);
+            return false;
+        }
+        return true;
+    }
+    
+    // ---------------------------------------------------------------- fields
+    
+    public boolean hasField(int index) {
+        return index < fieldCount && ends[index] > starts[index];
+    }
+    
+    // Compare a field to a constant without allocating
+    public boolean fieldEquals(int index, String value) {
+        if (index >= fieldCount) {
+            return false;
+        }
+        if (quoted[index] && indexOfQuote(index) >= 0) {
+            return value.equals(getString(index));
+        }
+        int start = starts[index];
+        int length = ends[index] - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public String getString(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        if (!quoted[index] || indexOfQuote(index) < 0) {
+            return line.subSequence(start, end).toString();
+        }
+        unescaped.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            unescaped.append(c);
+            if (c == '"') {
+                i++;  // Skip the second quote of ""
+            }
+        }
+        return unescaped.toString();
+    }
+    
+    // Non-throwing int parse: records BAD_NUMBER and returns 0 on malformed input
+    public int parseInt(int index) {
+        long value = parseLong(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            fail(ValidationError.BAD_NUMBER);
+            return 0;
+        }
+        return (int) value;
+    }
+    
+    // Non-throwing long parse (up to 18 digits) straight from the characters
+    private long parseLong(int index) {
+        int pos = starts[index];
+        int end = ends[index];
+        boolean negative = false;
+        if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+            negative = line.charAt(pos) == '-';
+            pos++;
+        }
+        if (pos == end || end - pos > 18) {
+            fail(ValidationError.BAD_NUMBER);
+            return 0;
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = line.charAt(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                fail(ValidationError.BAD_NUMBER);
+                return 0;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+    
+    /**
+     * Non-throwing decimal parse such as 399.99 directly from the characters. Plain
+     * decimals with at most 15 significant digits take the exact fast path (mantissa /
+     * 10^n, correctly rounded); longer mantissas and exponents are checked for syntax
+     * first and only then handed to Double.parseDouble, so bad input never throws.
+     * Values that overflow to infinity are BAD_NUMBER too.
+     */
+    public double parseDouble(int index) {
+        int pos = starts[index];
+        int end = ends[index];
+        boolean negative = false;
+        if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+            negative = line.charAt(pos) == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; pos < end; pos++) {
+            char c = line.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                if (digits > 15) {
+                    return parseDoubleSlow(index);
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c == 'e' || c == 'E') {
+                return parseDoubleSlow(index);
+            } else {
+                fail(ValidationError.BAD_NUMBER);
+                return 0;
+            }
+        }
+        if (digits == 0) {
+            fail(ValidationError.BAD_NUMBER);
+            return 0;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+    
+    // Validate [sign] digits [. digits] [e [sign] digits] before calling the JDK parser
+    private double parseDoubleSlow(int index) {
+        int pos = starts[index];
+        int end = ends[index];
+        if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+            pos++;
+        }
+        int mantissaDigits = 0;
+        boolean dot = false;
+        for (; pos < end; pos++) {
+            char c = line.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                mantissaDigits++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (pos < end && (line.charAt(pos) == 'e' || line.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+                pos++;
+            }
+            int exponentDigits = 0;
+            for (; pos < end && line.charAt(pos) >= '0' && line.charAt(pos) <= '9'; pos++) {
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                pos = -1;
+            }
+        }
+        if (mantissaDigits == 0 || pos != end) {
+            fail(ValidationError.BAD_NUMBER);
+            return 0;
+        }
+        double value = Double.parseDouble(getString(index));
+        if (Double.isInfinite(value)) {
+            fail(ValidationError.BAD_NUMBER);  // e.g. 1e400 overflows
+            return 0;
+        }
+        return value;
+    }
+    
+    private int indexOfQuote(int index) {
+        for (int i = starts[index]; i < ends[index]; i++) {
+            if (line.charAt(i) == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private int skipBlanks(int pos, int length) {
+        while (pos < length && isBlank(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+    
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+    
+    // ---------------------------------------------------------------- writing
+    
+    // Append one product row (without line terminator) to a reused builder
+    public static StringBuilder appendRow(StringBuilder out, String type, int id, String name,
+                                          String detail, double price, int quantity, int reorderPoint) {
+        out.append(type).append(',').append(id).append(',');
+        appendField(out, name).append(',');
+        appendField(out, detail).append(',');
+        out.append(price).append(',').append(quantity);
+        if (reorderPoint != Product.NO_REORDER_POINT) {
+            out.append(',').append(reorderPoint);
+        }
+        return out;
+    }
+    
+    // RFC 4180: quote fields containing separators, quotes, line breaks or edge blanks
+    public static StringBuilder appendField(StringBuilder out, String value) {
+        if (!needsQuoting(value)) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+    
+    private static boolean needsQuoting(String value) {
+        int length = value.length();
+        if (length > 0 && (isBlank(value.charAt(0)) || isBlank(value.charAt(length - 1)))) {
+            return true;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Compact error codes for product validation and CSV decoding
+ * Demonstrates: Enums, Exception-free error reporting
+ * 
+ * Bulk loads collect these codes instead of throwing; only the public single-item
+ * API turns them into InvalidProductException.
+ */
+public enum ValidationError {
+    EMPTY_NAME("Product name cannot be empty"),
+    LINE_BREAK("Text fields cannot contain line breaks"),
+    NEGATIVE_PRICE("Price cannot be negative"),
+    INVALID_PRICE("Price must be a finite number"),
+    NEGATIVE_QUANTITY("Quantity cannot be negative"),
+    NEGATIVE_REORDER_POINT("Reorder point cannot be negative"),
+    EMPTY_CATEGORY("Category cannot be empty"),
+    EMPTY_BRAND("Brand cannot be empty"),
+    MISSING_FIELDS("Invalid CSV format: insufficient fields"),
+    TOO_MANY_FIELDS("Invalid CSV format: too many fields"),
+    UNTERMINATED_QUOTE("Invalid CSV format: unterminated quote"),
+    TEXT_AFTER_QUOTE("Invalid CSV format: text after closing quote"),
+    BAD_NUMBER("Invalid number format in CSV"),
+    UNKNOWN_TYPE("Unknown product type"),
+    UNKNOWN_PRODUCT("No product with this ID"),
+    DUPLICATE_ID("Another product already has this ID"),
+    ID_OUT_OF_RANGE("Product ID is out of range");
+    
+    private final String message;
+    
+    ValidationError(String message) {
+        this.message = message;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+}
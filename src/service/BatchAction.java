@@ -0,0 +1,56 @@
+package service;
+
+/**
+ * One change applied to every selected product by ProductManager.applyBatch
+ * Demonstrates: Static factory methods, Immutability
+ */
+public final class BatchAction {
+    
+    public enum Kind {
+        DELETE,         // remove the products
+        ADJUST_PRICE,   // change prices by a percentage, rounded to cents
+        SET_QUANTITY    // set every quantity to the same value
+    }
+    
+    private final Kind kind;
+    private final double value;
+    
+    private BatchAction(Kind kind, double value) {
+        this.kind = kind;
+        this.value = value;
+    }
+    
+    public static BatchAction delete() {
+        return new BatchAction(Kind.DELETE, 0);
+    }
+    
+    // +10 raises prices by 10%, -25 takes a quarter off
+    public static BatchAction adjustPrice(double percent) {
+        return new BatchAction(Kind.ADJUST_PRICE, percent);
+    }
+    
+    public static BatchAction setQuantity(int quantity) {
+        return new BatchAction(Kind.SET_QUANTITY, quantity);
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    // Percentage for ADJUST_PRICE, quantity for SET_QUANTITY
+    public double getValue() {
+        return value;
+    }
+    
+    @Override
+    public String toString() {
+        switch (kind) {
+            case ADJUST_PRICE:
+                return String.format("adjust price by %+.2f%%", value);
+            case SET_QUANTITY:
+                return "set quantity to " + (int) value;
+            default:
+                return "delete";
+        }
+    }
+}
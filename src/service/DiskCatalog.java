@@ -0,0 +1,558 @@
+package service;
+
+import exception.DataFileException;
+import exception.InvalidProductException;
+import model.Product;
+import model.ProductCodec;
+import model.ValidationError;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalog kept on disk in fixed-size pages, with only a bounded set of hot pages in memory
+ * Demonstrates: Paged storage, Memory-mapped index, LRU caching
+ *
+ * products.pages holds 16 KB pages, each a row count followed by length-prefixed CSV rows.
+ * products.idx is a memory-mapped array indexed by product ID holding the page each product
+ * lives on (0 = no such product), so a lookup reads one index slot and at most one page.
+ * Decoded pages are cached in an access-ordered LRU bounded by an estimated heap budget;
+ * pages are faulted in on getProductById and when a table scrolls over them.
+ *
+ * Row positions follow page order, found through a Fenwick tree of per-page row counts.
+ * New products go to the last page; an update that no longer fits its page moves the
+ * product there too, so its row position changes. Every change is written to its page
+ * immediately; getHitRate() and the other counters show how well the budget fits.
+ */
+public class DiskCatalog implements ProductStore, Closeable {
+    public static final int PAGE_SIZE = 16 * 1024;
+    private static final int PAGE_HEADER = 4;
+    private static final int ROW_HEADER = 2;
+    private static final String PAGE_FILE = "products.pages";
+    private static final String INDEX_FILE = "products.idx";
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    // One mapping of products.idx holds at most 2 GB, i.e. this many 4-byte slots
+    private static final int MAX_INDEX_CAPACITY = Integer.MAX_VALUE / 4;
+    public static final int MAX_ID = MAX_INDEX_CAPACITY - 1;
+    
+    // Rough heap cost of a decoded page and of each decoded product beyond its text
+    private static final int PAGE_OVERHEAD_BYTES = 64;
+    private static final int PRODUCT_OVERHEAD_BYTES = 96;
+    
+    // One decoded page; rows keep their on-disk order
+    private static final class Page {
+        final int number;
+        final List<Product> rows;
+        int usedBytes;
+        long estimatedBytes;
+        
+        Page(int number, List<Product> rows, int usedBytes, long estimatedBytes) {
+            this.number = number;
+            this.rows = rows;
+            this.usedBytes = usedBytes;
+            this.estimatedBytes = estimatedBytes;
+        }
+    }
+    
+    private final File directory;
+    private final FileChannel pageChannel;
+    private final FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int indexCapacity;
+    
+    private int[] pageRows = new int[16];  // Live rows per page
+    private int[] rowTree = new int[17];   // Fenwick tree over pageRows
+    private int pageCount;
+    private int productCount;
+    private int maxId;
+    
+    private final long cacheBudgetBytes;
+    private final Map<Integer, Page> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+    private final ByteBuffer pageBuffer = ByteBuffer.allocate(PAGE_SIZE);
+    private final ProductCodec codec = new ProductCodec();
+    private final StringBuilder row = new StringBuilder(128);
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long pageWrites;
+    
+    // Open (or create) the catalog in the directory, keeping at most about cacheBudgetBytes
+    // of decoded products on the heap
+    public DiskCatalog(File directory, long cacheBudgetBytes) throws DataFileException {
+        this.directory = directory;
+        this.cacheBudgetBytes = cacheBudgetBytes;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new DataFileException("Failed to create catalog directory " + directory);
+        }
+        try {
+            pageChannel = FileChannel.open(new File(directory, PAGE_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            indexChannel = FileChannel.open(new File(directory, INDEX_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            openIndex();
+            openPages();
+        } catch (IOException e) {
+            throw new DataFileException("Error opening catalog " + directory, e);
+        }
+    }
+    
+    // IMPORT: Append every product of a products.txt snapshot (plain or compressed), filling
+    // pages sequentially and writing each one once; rejected rows (including duplicate and
+    // out-of-range IDs) are listed in the report and the import carries on
+    public synchronized LoadReport importSnapshot(File snapshot) throws DataFileException {
+        LoadReport report = new LoadReport(snapshot.getName());
+        List<String> failures = new ArrayList<>();
+        try (BufferedReader reader = ProductManager.openSnapshotReader(snapshot)) {
+            ProductManager.readProducts(reader, report, product -> {
+                if (product.getId() <= 0 || product.getId() > MAX_ID) {
+                    return ValidationError.ID_OUT_OF_RANGE;
+                }
+                if (pageOf(product.getId()) >= 0) {
+                    return ValidationError.DUPLICATE_ID;
+                }
+                if (failures.isEmpty()) {
+                    try {
+                        append(product, false);
+                    } catch (IOException | InvalidProductException e) {
+                        failures.add(e.getMessage());
+                    }
+                }
+                return null;
+            });
+            if (!failures.isEmpty()) {
+                throw new DataFileException("Error importing " + snapshot.getName() + ": " + failures.get(0));
+            }
+            if (pageCount > 0) {
+                writePage(page(pageCount - 1));
+            }
+            index.force();
+        } catch (IOException e) {
+            throw new DataFileException("Error importing " + snapshot.getName(), e);
+        }
+        return report;
+    }
+    
+    // READ: Number of products in the catalog
+    @Override
+    public synchronized int getProductCount() {
+        return productCount;
+    }
+    
+    // READ: Rows [from, from + count) in page order, faulting their pages in as needed
+    @Override
+    public synchronized List<Product> getProductsInRange(int from, int count) {
+        List<Product> result = new ArrayList<>(Math.max(0, Math.min(count, productCount - from)));
+        if (from < 0 || from >= productCount || count <= 0) {
+            return result;
+        }
+        int pageNumber = pageContainingRow(from);
+        int offset = from - rowsBefore(pageNumber);
+        while (result.size() < count && pageNumber < pageCount) {
+            if (pageRows[pageNumber] > offset) {
+                List<Product> rows = page(pageNumber).rows;
+                int end = Math.min(rows.size(), offset + count - result.size());
+                result.addAll(rows.subList(offset, end));
+            }
+            pageNumber++;
+            offset = 0;
+        }
+        return result;
+    }
+    
+    // READ: One index slot and, on a cache miss, one page read
+    @Override
+    public synchronized Product getProductById(int id) {
+        int pageNumber = pageOf(id);
+        if (pageNumber < 0) {
+            return null;
+        }
+        for (Product product : page(pageNumber).rows) {
+            if (product.getId() == id) {
+                return product;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public synchronized int getNextId() {
+        return maxId + 1;
+    }
+    
+    // CREATE: Append to the last page, starting a new one when it is full
+    @Override
+    public synchronized void addProduct(Product product) throws InvalidProductException, DataFileException {
+        if (product == null) {
+            throw new InvalidProductException("Product cannot be null");
+        }
+        product.validate();
+        if (pageOf(product.getId()) >= 0) {
+            throw new InvalidProductException("Product with ID " + product.getId() + " already exists");
+        }
+        try {
+            append(product, true);
+        } catch (IOException e) {
+            throw new DataFileException("Error saving catalog page", e);
+        }
+    }
+    
+    // UPDATE: Rewrite the product's page, moving the product to the last page if it no longer fits
+    @Override
+    public synchronized void updateProduct(int id, Product updatedProduct)
+            throws InvalidProductException, DataFileException {
+        if (updatedProduct == null) {
+            throw new InvalidProductException("Updated product cannot be null");
+        }
+        updatedProduct.validate();
+        int pageNumber = pageOf(id);
+        if (pageNumber < 0) {
+            throw new InvalidProductException("Product with ID " + id + " not found");
+        }
+        updatedProduct.setId(id);  // Keep the same ID
+        int rowBytes = encodedSize(updatedProduct);
+        try {
+            Page page = page(pageNumber);
+            int position = positionOf(page, id);
+            int oldBytes = encodedSize(page.rows.get(position));
+            if (page.usedBytes - oldBytes + rowBytes <= PAGE_SIZE) {
+                page.rows.set(position, updatedProduct);
+                page.usedBytes += rowBytes - oldBytes;
+                adjustEstimate(page, estimateOf(rowBytes) - estimateOf(oldBytes));
+                writePage(page);
+            } else {
+                // Append the new version first (it checks the row fits a page before changing
+                // anything), so the product is never missing from disk or the index if that fails
+                append(updatedProduct, true);
+                page = page(pageNumber);  // The append may have evicted it from the cache
+                page.rows.remove(positionOf(page, id));
+                page.usedBytes -= oldBytes;
+                adjustEstimate(page, -estimateOf(oldBytes));
+                writePage(page);
+                changeRows(pageNumber, -1);
+                productCount--;
+            }
+        } catch (IOException e) {
+            throw new DataFileException("Error saving catalog page", e);
+        }
+    }
+    
+    // DELETE: Drop the row from its page and clear its index slot
+    @Override
+    public synchronized void deleteProduct(int id) throws DataFileException, InvalidProductException {
+        int pageNumber = pageOf(id);
+        if (pageNumber < 0) {
+            throw new InvalidProductException("Product with ID " + id + " not found");
+        }
+        try {
+            Page page = page(pageNumber);
+            int position = positionOf(page, id);
+            int oldBytes = encodedSize(page.rows.remove(position));
+            page.usedBytes -= oldBytes;
+            adjustEstimate(page, -estimateOf(oldBytes));
+            writePage(page);
+            changeRows(pageNumber, -1);
+            productCount--;
+            index.putInt(id * 4, 0);
+        } catch (IOException e) {
+            throw new DataFileException("Error saving catalog page", e);
+        }
+    }
+    
+    // METRICS: Share of page requests served from the cache
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+    
+    public synchronized long getCacheHits() {
+        return hits;
+    }
+    
+    public synchronized long getCacheMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    public synchronized long getPageWrites() {
+        return pageWrites;
+    }
+    
+    public synchronized int getCachedPages() {
+        return cache.size();
+    }
+    
+    // Estimated heap held by the cached pages
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+    
+    public long getCacheBudgetBytes() {
+        return cacheBudgetBytes;
+    }
+    
+    public synchronized int getPageCount() {
+        return pageCount;
+    }
+    
+    public File getDirectory() {
+        return directory;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        pageChannel.force(true);
+        pageChannel.close();
+        indexChannel.close();
+        cache.clear();
+        cachedBytes = 0;
+    }
+    
+    // Place a product on the last page (or a new one) and point its index slot there.
+    // Without writeThrough the last page is only written once it fills up (bulk import).
+    // Callers check the ID is free, or are moving the product (updateProduct).
+    private void append(Product product, boolean writeThrough) throws IOException, InvalidProductException {
+        int rowBytes = encodedSize(product);
+        if (PAGE_HEADER + rowBytes > PAGE_SIZE) {
+            throw new InvalidProductException("Product " + product.getId() + " is too large for a catalog page");
+        }
+        if (product.getId() <= 0 || product.getId() > MAX_ID) {
+            throw new InvalidProductException("Product ID must be between 1 and " + MAX_ID);
+        }
+        Page page = pageCount == 0 ? null : page(pageCount - 1);
+        if (page == null || page.usedBytes + rowBytes > PAGE_SIZE) {
+            if (page != null && !writeThrough) {
+                writePage(page);
+            }
+            page = new Page(pageCount, new ArrayList<>(), PAGE_HEADER, PAGE_OVERHEAD_BYTES);
+            addPage();
+            cache.put(page.number, page);
+            cachedBytes += page.estimatedBytes;
+        }
+        page.rows.add(product);
+        page.usedBytes += rowBytes;
+        adjustEstimate(page, estimateOf(rowBytes));
+        if (writeThrough) {
+            writePage(page);
+        }
+        changeRows(page.number, 1);
+        productCount++;
+        ensureIndexCapacity(product.getId());
+        index.putInt(product.getId() * 4, page.number + 1);
+        maxId = Math.max(maxId, product.getId());
+        evictOverBudget(page.number);
+    }
+    
+    // Cached page, or read and decode it and evict least recently used pages over budget
+    private Page page(int pageNumber) {
+        Page page = cache.get(pageNumber);
+        if (page != null) {
+            hits++;
+            return page;
+        }
+        misses++;
+        try {
+            page = readPage(pageNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading catalog page " + pageNumber, e);
+        }
+        cache.put(pageNumber, page);
+        cachedBytes += page.estimatedBytes;
+        evictOverBudget(pageNumber);
+        return page;
+    }
+    
+    private void evictOverBudget(int keep) {
+        Iterator<Map.Entry<Integer, Page>> iterator = cache.entrySet().iterator();
+        while (cachedBytes > cacheBudgetBytes && iterator.hasNext()) {
+            Map.Entry<Integer, Page> eldest = iterator.next();
+            if (eldest.getKey() == keep) {
+                continue;
+            }
+            cachedBytes -= eldest.getValue().estimatedBytes;
+            iterator.remove();
+            evictions++;
+        }
+    }
+    
+    private Page readPage(int pageNumber) throws IOException {
+        pageBuffer.clear();
+        while (pageBuffer.hasRemaining()) {
+            if (pageChannel.read(pageBuffer, (long) pageNumber * PAGE_SIZE + pageBuffer.position()) < 0) {
+                break;
+            }
+        }
+        pageBuffer.flip();
+        int rowCount = pageBuffer.getInt();
+        List<Product> rows = new ArrayList<>(rowCount);
+        byte[] bytes = pageBuffer.array();
+        long estimatedBytes = PAGE_OVERHEAD_BYTES;
+        for (int i = 0; i < rowCount; i++) {
+            int length = pageBuffer.getShort() & 0xFFFF;
+            String text = new String(bytes, pageBuffer.position(), length, StandardCharsets.UTF_8);
+            pageBuffer.position(pageBuffer.position() + length);
+            Product product = codec.scan(text) == null ? ProductManager.decodeProduct(codec) : null;
+            if (product == null) {
+                throw new IOException("Corrupt row " + i + " on catalog page " + pageNumber + ": " + codec.getError());
+            }
+            rows.add(product);
+            estimatedBytes += estimateOf(ROW_HEADER + length);
+        }
+        return new Page(pageNumber, rows, pageBuffer.position(), estimatedBytes);
+    }
+    
+    private void writePage(Page page) throws IOException {
+        pageBuffer.clear();
+        pageBuffer.putInt(page.rows.size());
+        for (Product product : page.rows) {
+            byte[] bytes = encode(product);
+            pageBuffer.putShort((short) bytes.length);
+            pageBuffer.put(bytes);
+        }
+        Arrays.fill(pageBuffer.array(), pageBuffer.position(), PAGE_SIZE, (byte) 0);
+        pageBuffer.position(0).limit(PAGE_SIZE);
+        while (pageBuffer.hasRemaining()) {
+            pageChannel.write(pageBuffer, (long) page.number * PAGE_SIZE + pageBuffer.position());
+        }
+        pageWrites++;
+    }
+    
+    // Heap estimate of a decoded product from its encoded size (strings hold two bytes per char)
+    private static long estimateOf(int rowBytes) {
+        return PRODUCT_OVERHEAD_BYTES + 2L * (rowBytes - ROW_HEADER);
+    }
+    
+    // Pages being changed were just fetched, so they are always in the cache
+    private void adjustEstimate(Page page, long delta) {
+        page.estimatedBytes += delta;
+        cachedBytes += delta;
+    }
+    
+    private byte[] encode(Product product) {
+        row.setLength(0);
+        product.writeCSV(row);
+        return row.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private int encodedSize(Product product) {
+        return ROW_HEADER + encode(product).length;
+    }
+    
+    private static int positionOf(Page page, int id) {
+        for (int i = 0; i < page.rows.size(); i++) {
+            if (page.rows.get(i).getId() == id) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Product " + id + " missing from catalog page " + page.number);
+    }
+    
+    // Page holding the product, or -1
+    private int pageOf(int id) {
+        if (id <= 0 || id >= indexCapacity) {
+            return -1;
+        }
+        return index.getInt(id * 4) - 1;
+    }
+    
+    private void openIndex() throws IOException {
+        indexCapacity = (int) Math.max(INITIAL_INDEX_CAPACITY, indexChannel.size() / 4);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) indexCapacity * 4);
+        for (int id = indexCapacity - 1; id > 0; id--) {
+            if (index.getInt(id * 4) != 0) {
+                maxId = id;
+                break;
+            }
+        }
+    }
+    
+    // Double the mapped index until the ID has a slot
+    private void ensureIndexCapacity(int id) throws IOException {
+        if (id < indexCapacity) {
+            return;
+        }
+        int capacity = indexCapacity;
+        while (capacity <= id) {
+            capacity = (int) Math.min((long) capacity * 2, MAX_INDEX_CAPACITY);
+        }
+        index.force();
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * 4);
+        indexCapacity = capacity;
+    }
+    
+    // Row counts come from each page's header, so opening never decodes a product
+    private void openPages() throws IOException {
+        int pages = (int) (pageChannel.size() / PAGE_SIZE);
+        ByteBuffer header = ByteBuffer.allocate(PAGE_HEADER);
+        for (int i = 0; i < pages; i++) {
+            header.clear();
+            pageChannel.read(header, (long) i * PAGE_SIZE);
+            header.flip();
+            addPage();
+            changeRows(i, header.getInt());
+            productCount += pageRows[i];
+        }
+    }
+    
+    private void addPage() {
+        if (pageCount == pageRows.length) {
+            pageRows = Arrays.copyOf(pageRows, pageRows.length * 2);
+            rowTree = new int[pageRows.length + 1];
+            for (int i = 0; i < pageCount; i++) {
+                int rows = pageRows[i];
+                pageRows[i] = 0;
+                changeRows(i, rows);
+            }
+        }
+        pageCount++;
+    }
+    
+    private void changeRows(int pageNumber, int delta) {
+        pageRows[pageNumber] += delta;
+        for (int i = pageNumber + 1; i < rowTree.length; i += i & -i) {
+            rowTree[i] += delta;
+        }
+    }
+    
+    // Rows on pages [0, pageNumber)
+    private int rowsBefore(int pageNumber) {
+        int sum = 0;
+        for (int i = pageNumber; i > 0; i -= i & -i) {
+            sum += rowTree[i];
+        }
+        return sum;
+    }
+    
+    // Page holding the row at the given position: the first page whose prefix sum exceeds it
+    private int pageContainingRow(int row) {
+        int position = 0;
+        int remaining = row;
+        for (int step = Integer.highestOneBit(rowTree.length - 1); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < rowTree.length && rowTree[next] <= remaining) {
+                position = next;
+                remaining -= rowTree[next];
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,13 @@
+package service;
+
+/**
+ * Progress reporting and cancellation hook for long-running exports
+ */
+public interface ExportProgress {
+    
+    // Called periodically with the number of products scanned so far
+    void onProgress(long scanned, long total);
+    
+    // Polled between rows; returning true stops the export early
+    boolean isCancelled();
+}
@@ -0,0 +1,210 @@
+package service;
+
+import model.Accessory;
+import model.ComputerPart;
+import model.Product;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running inventory totals maintained incrementally by ProductManager
+ * Demonstrates: Incremental computation, Immutable snapshots
+ * 
+ * Every add, update and delete is applied as an O(1) delta instead of rescanning the
+ * catalog. The total value and every group's value use compensated (Neumaier) summation
+ * so repeated add and remove deltas do not drift away from a full recomputation.
+ */
+public class InventoryAggregates {
+    
+    // Immutable view of the aggregates at one point in time
+    public static class Snapshot {
+        private final int productCount;
+        private final long totalUnits;
+        private final double totalValue;
+        private final Map<String, InventoryReport.Group> byType;
+        private final Map<String, InventoryReport.Group> byCategory;
+        private final Map<String, InventoryReport.Group> byBrand;
+        
+        Snapshot(int productCount, long totalUnits, double totalValue,
+                 Map<String, InventoryReport.Group> byType,
+                 Map<String, InventoryReport.Group> byCategory,
+                 Map<String, InventoryReport.Group> byBrand) {
+            this.productCount = productCount;
+            this.totalUnits = totalUnits;
+            this.totalValue = totalValue;
+            this.byType = Collections.unmodifiableMap(byType);
+            this.byCategory = Collections.unmodifiableMap(byCategory);
+            this.byBrand = Collections.unmodifiableMap(byBrand);
+        }
+        
+        public int getProductCount() {
+            return productCount;
+        }
+        
+        public long getTotalUnits() {
+            return totalUnits;
+        }
+        
+        public double getTotalValue() {
+            return totalValue;
+        }
+        
+        // Subtotals keyed by product type (ComputerPart, Accessory)
+        public Map<String, InventoryReport.Group> getByType() {
+            return byType;
+        }
+        
+        // Subtotals of computer parts keyed by category
+        public Map<String, InventoryReport.Group> getByCategory() {
+            return byCategory;
+        }
+        
+        // Subtotals of accessories keyed by brand
+        public Map<String, InventoryReport.Group> getByBrand() {
+            return byBrand;
+        }
+        
+        // Compare against another snapshot, allowing for floating point rounding in values
+        public boolean matches(Snapshot other, double tolerance) {
+            return productCount == other.productCount
+                && totalUnits == other.totalUnits
+                && Math.abs(totalValue - other.totalValue) <= tolerance
+                && groupsMatch(byType, other.byType, tolerance)
+                && groupsMatch(byCategory, other.byCategory, tolerance)
+                && groupsMatch(byBrand, other.byBrand, tolerance);
+        }
+        
+        private static boolean groupsMatch(Map<String, InventoryReport.Group> a,
+                                           Map<String, InventoryReport.Group> b, double tolerance) {
+            if (!a.keySet().equals(b.keySet())) {
+                return false;
+            }
+            for (InventoryReport.Group group : a.values()) {
+                InventoryReport.Group other = b.get(group.getKey());
+                if (group.getProductCount() != other.getProductCount()
+                        || group.getUnits() != other.getUnits()
+                        || Math.abs(group.getValue() - other.getValue()) > tolerance) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    // Neumaier compensated sum: the rounding error of each addition is carried separately
+    private static class CompensatedSum {
+        double sum;
+        double compensation;
+        
+        void add(double delta) {
+            double next = sum + delta;
+            if (Math.abs(sum) >= Math.abs(delta)) {
+                compensation += (sum - next) + delta;
+            } else {
+                compensation += (delta - next) + sum;
+            }
+            sum = next;
+        }
+        
+        double value() {
+            return sum + compensation;
+        }
+    }
+    
+    private static class Subtotal {
+        int count;
+        long units;
+        final CompensatedSum value = new CompensatedSum();
+    }
+    
+    private int productCount;
+    private long totalUnits;
+    private CompensatedSum totalValue = new CompensatedSum();
+    private final Map<String, Subtotal> byType = new HashMap<>();
+    private final Map<String, Subtotal> byCategory = new HashMap<>();
+    private final Map<String, Subtotal> byBrand = new HashMap<>();
+    
+    // Cached until the next delta so repeated reads cost nothing
+    private volatile Snapshot cached;
+    
+    // Build aggregates from scratch (used for verification and after bulk replacement)
+    public static Snapshot recompute(Iterable<Product> products) {
+        InventoryAggregates aggregates = new InventoryAggregates();
+        for (Product product : products) {
+            aggregates.add(product);
+        }
+        return aggregates.snapshot();
+    }
+    
+    void add(Product product) {
+        apply(product, 1);
+    }
+    
+    void remove(Product product) {
+        apply(product, -1);
+    }
+    
+    void replace(Product oldProduct, Product newProduct) {
+        remove(oldProduct);
+        add(newProduct);
+    }
+    
+    void clear() {
+        productCount = 0;
+        totalUnits = 0;
+        totalValue = new CompensatedSum();
+        byType.clear();
+        byCategory.clear();
+        byBrand.clear();
+        cached = null;
+    }
+    
+    Snapshot snapshot() {
+        Snapshot snapshot = cached;
+        if (snapshot == null) {
+            snapshot = new Snapshot(productCount, totalUnits, totalValue.value(),
+                freeze(byType), freeze(byCategory), freeze(byBrand));
+            cached = snapshot;
+        }
+        return snapshot;
+    }
+    
+    private void apply(Product product, int sign) {
+        long units = product.getQuantity();
+        double value = product.getTotalValue();
+        
+        productCount += sign;
+        totalUnits += sign * units;
+        totalValue.add(sign * value);
+        
+        adjust(byType, product.getType(), sign, units, value);
+        if (product instanceof ComputerPart) {
+            adjust(byCategory, ((ComputerPart) product).getCategory(), sign, units, value);
+        } else if (product instanceof Accessory) {
+            adjust(byBrand, ((Accessory) product).getBrand(), sign, units, value);
+        }
+        cached = null;
+    }
+    
+    private static void adjust(Map<String, Subtotal> groups, String key, int sign, long units, double value) {
+        Subtotal subtotal = groups.computeIfAbsent(key, k -> new Subtotal());
+        subtotal.count += sign;
+        subtotal.units += sign * units;
+        subtotal.value.add(sign * value);
+        if (subtotal.count == 0) {
+            groups.remove(key);
+        }
+    }
+    
+    private static Map<String, InventoryReport.Group> freeze(Map<String, Subtotal> groups) {
+        Map<String, InventoryReport.Group> frozen = new HashMap<>(groups.size() * 2);
+        for (Map.Entry<String, Subtotal> entry : groups.entrySet()) {
+            Subtotal subtotal = entry.getValue();
+            frozen.put(entry.getKey(),
+                new InventoryReport.Group(entry.getKey(), subtotal.count, subtotal.units, subtotal.value.value()));
+        }
+        return frozen;
+    }
+}
@@ -0,0 +1,96 @@
+package service;
+
+import model.Product;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of a ReportEngine run
+ * Demonstrates: Encapsulation, Immutable value objects
+ */
+public class InventoryReport {
+    
+    // Subtotal for one group-by key
+    public static class Group {
+        private final String key;
+        private final int productCount;
+        private final long units;
+        private final double value;
+        
+        public Group(String key, int productCount, long units, double value) {
+            this.key = key;
+            this.productCount = productCount;
+            this.units = units;
+            this.value = value;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+        
+        public int getProductCount() {
+            return productCount;
+        }
+        
+        public long getUnits() {
+            return units;
+        }
+        
+        public double getValue() {
+            return value;
+        }
+    }
+    
+    private final ReportEngine.GroupBy groupBy;
+    private final int productCount;
+    private final List<Group> groups;
+    private final List<Product> topByValue;
+    private final double[] percentiles;
+    private final double[] priceAtPercentile;
+    private final long elapsedNanos;
+    
+    InventoryReport(ReportEngine.GroupBy groupBy, int productCount, List<Group> groups,
+                    List<Product> topByValue, double[] percentiles, double[] priceAtPercentile,
+                    long elapsedNanos) {
+        this.groupBy = groupBy;
+        this.productCount = productCount;
+        this.groups = Collections.unmodifiableList(groups);
+        this.topByValue = Collections.unmodifiableList(topByValue);
+        this.percentiles = percentiles.clone();
+        this.priceAtPercentile = priceAtPercentile.clone();
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    public ReportEngine.GroupBy getGroupBy() {
+        return groupBy;
+    }
+    
+    public int getProductCount() {
+        return productCount;
+    }
+    
+    // Groups sorted by descending value
+    public List<Group> getGroups() {
+        return groups;
+    }
+    
+    // Products with the highest price × quantity, highest first
+    public List<Product> getTopByValue() {
+        return topByValue;
+    }
+    
+    // Requested percentiles (0-100), parallel to getPriceAtPercentile()
+    public double[] getPercentiles() {
+        return percentiles.clone();
+    }
+    
+    public double[] getPriceAtPercentile() {
+        return priceAtPercentile.clone();
+    }
+    
+    // Wall-clock time spent computing the report, excluding taking the snapshot
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
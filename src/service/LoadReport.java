@@ -0,0 +1,115 @@
+package service;
+
+import model.ValidationError;
+
+import java.util.Arrays;
+
+/**
+ * Structured result of a bulk load or import
+ * Demonstrates: Compact data structures, Exception-free error collection
+ * 
+ * Rejected rows are stored as parallel primitive arrays (line number, error code), so
+ * a file with thousands of bad rows costs a few bytes per row instead of an
+ * exception with a stack trace each.
+ */
+public class LoadReport {
+    private static final ValidationError[] CODES = ValidationError.values();
+    
+    private final String source;
+    private int loaded;
+    private int rejected;
+    private int[] lineNumbers = new int[16];
+    private byte[] errorCodes = new byte[16];
+    private final int[] countsByCode = new int[CODES.length];
+    
+    public LoadReport(String source) {
+        this.source = source;
+    }
+    
+    void recordLoaded() {
+        loaded++;
+    }
+    
+    void recordRejected(int lineNumber, ValidationError error) {
+        if (rejected == lineNumbers.length) {
+            lineNumbers = Arrays.copyOf(lineNumbers, rejected * 2);
+            errorCodes = Arrays.copyOf(errorCodes, rejected * 2);
+        }
+        lineNumbers[rejected] = lineNumber;
+        errorCodes[rejected] = (byte) error.ordinal();
+        countsByCode[error.ordinal()]++;
+        rejected++;
+    }
+    
+    public String getSource() {
+        return source;
+    }
+    
+    public int getLoadedCount() {
+        return loaded;
+    }
+    
+    public int getRejectedCount() {
+        return rejected;
+    }
+    
+    public boolean hasErrors() {
+        return rejected > 0;
+    }
+    
+    // Line number of the i-th rejected row (1-based, in file order)
+    public int getLineNumber(int i) {
+        if (i >= rejected) {
+            throw new IndexOutOfBoundsException("Rejected row " + i + " of " + rejected);
+        }
+        return lineNumbers[i];
+    }
+    
+    // Error code of the i-th rejected row
+    public ValidationError getError(int i) {
+        if (i >= rejected) {
+            throw new IndexOutOfBoundsException("Rejected row " + i + " of " + rejected);
+        }
+        return CODES[errorCodes[i]];
+    }
+    
+    public int countOf(ValidationError error) {
+        return countsByCode[error.ordinal()];
+    }
+    
+    // One-line summary, e.g. "products.txt: 9000 loaded, 1000 rejected (BAD_NUMBER x600, EMPTY_NAME x400)"
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(source).append(": ").append(loaded).append(" loaded, ")
+               .append(rejected).append(" rejected");
+        if (rejected > 0) {
+            String separator = " (";
+            for (ValidationError code : CODES) {
+                if (countsByCode[code.ordinal()] > 0) {
+                    summary.append(separator).append(code).append(" x").append(countsByCode[code.ordinal()]);
+                    separator = ", ";
+                }
+            }
+            summary.append(')');
+        }
+        return summary.toString();
+    }
+    
+    // Human-readable detail lines for the first 'limit' rejected rows
+    public String getDetails(int limit) {
+        StringBuilder details = new StringBuilder();
+        for (int i = 0; i < Math.min(limit, rejected); i++) {
+            details.append("Line ").append(lineNumbers[i]).append(": ")
+                   .append(CODES[errorCodes[i]].getMessage()).append('\n');
+        }
+        if (rejected > limit) {
+            details.append("... and ").append(rejected - limit).append(" more\n");
+        }
+        return details.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+}
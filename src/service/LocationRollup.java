@@ -0,0 +1,46 @@
+package service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of a rollup over the stock held at every warehouse location
+ * Demonstrates: Encapsulation, Immutable value objects
+ */
+public class LocationRollup {
+    private final List<InventoryReport.Group> locations;
+    private final long totalUnits;
+    private final double totalValue;
+    private final long elapsedNanos;
+    
+    LocationRollup(List<InventoryReport.Group> locations, long elapsedNanos) {
+        this.locations = Collections.unmodifiableList(locations);
+        long units = 0;
+        double value = 0;
+        for (InventoryReport.Group location : locations) {
+            units += location.getUnits();
+            value += location.getValue();
+        }
+        this.totalUnits = units;
+        this.totalValue = value;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    // One group per location in index order: key is the location name,
+    // productCount the number of products stocked there
+    public List<InventoryReport.Group> getLocations() {
+        return locations;
+    }
+    
+    public long getTotalUnits() {
+        return totalUnits;
+    }
+    
+    public double getTotalValue() {
+        return totalValue;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
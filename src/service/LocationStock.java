@@ -0,0 +1,422 @@
+package service;
+
+import exception.InvalidProductException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Stock of every product split across warehouse locations
+ * Demonstrates: Chunked primitive matrices, Lock striping, Fork/Join rollups
+ *
+ * Quantities form a product x location matrix of ints stored by column. Each location
+ * has an array of 4096-row chunks, allocated the first time a product in that chunk is
+ * stocked there, so a location holding a few SKUs costs a few chunks, not a full column.
+ * The chunk arrays and the per-stripe totals grow with the catalog and the location list
+ * instead of being sized for the maximum up front.
+ * Products get dense rows, reused after deletes. Every chunk belongs to one of 64 lock
+ * stripes; a transfer locks only its product's stripe, and the unit total of each location
+ * is kept as one cell per stripe under the same lock, so a transfer moves the stock and
+ * both totals in one step and reading a total adds up 64 cells instead of a column.
+ *
+ * Location 0 is the main warehouse. A product's quantities always add up to
+ * Product.quantity: changes made without a location (edits, feeds, sales) add stock to
+ * the main warehouse and take it from there first, then from the others in order.
+ *
+ * Callers hold the ProductManager lock: the write lock to add, change or remove products
+ * and locations, at least the read lock for lookups and transfers. rollup() takes none.
+ */
+final class LocationStock {
+    static final int MAIN = 0;
+    static final String MAIN_NAME = "Main";
+    static final int MAX_LOCATIONS = 1024;
+    
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 4096;        // 16.7M products
+    private static final int STRIPES = 64;             // Power of two
+    private static final int SEQUENTIAL_CHUNKS = 4;
+    private static final int FREE = -1;
+    
+    private final Object[] stripeLocks = new Object[STRIPES];
+    // Units per stripe and location, guarded by the stripe's lock; a stripe's array grows
+    // to the highest location it has stock at
+    private final long[][] stripeUnits = new long[STRIPES][0];
+    // [location][chunk][row in chunk]; chunks are created and read under their stripe's lock.
+    // The chunk arrays of all locations are grown together, under the write lock and before
+    // chunkCount is raised, so they always cover chunkCount chunks.
+    private final int[][][] columns = new int[MAX_LOCATIONS][][];
+    private int chunkCapacity = 1;
+    private final double[][] prices = new double[MAX_CHUNKS][];
+    private final int[][] ids = new int[MAX_CHUNKS][];
+    
+    private final Map<Integer, Integer> rowById = new HashMap<>();
+    private final ArrayDeque<Integer> freeRows = new ArrayDeque<>();
+    private int rowCount;
+    
+    // Published after the location's column exists, so readers never see a name without one
+    private volatile String[] locations = {};
+    private volatile int chunkCount;
+    
+    LocationStock() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripeLocks[i] = new Object();
+        }
+        addLocation(MAIN_NAME);
+    }
+    
+    List<String> getLocations() {
+        return Arrays.asList(locations.clone());
+    }
+    
+    int getLocationCount() {
+        return locations.length;
+    }
+    
+    int indexOf(String name) {
+        String[] names = locations;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // Returns the new location's index
+    int addLocation(String name) {
+        String[] names = locations;
+        if (names.length == MAX_LOCATIONS) {
+            throw new IllegalStateException("At most " + MAX_LOCATIONS + " locations are supported");
+        }
+        columns[names.length] = new int[chunkCapacity][];
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = name;
+        locations = grown;
+        return names.length;
+    }
+    
+    // A new product starts with all of its stock in the main warehouse
+    void add(int id, int quantity, double price) {
+        Integer free = freeRows.poll();
+        int row = free != null ? free : rowCount++;
+        if (row >= MAX_CHUNKS * CHUNK_SIZE) {
+            throw new IllegalStateException("Location stock is full");
+        }
+        int chunk = row >>> CHUNK_BITS;
+        int slot = row & (CHUNK_SIZE - 1);
+        rowById.put(id, row);
+        if (chunk >= chunkCapacity) {
+            growColumns(chunk + 1);
+        }
+        synchronized (stripeLocks[stripeOf(chunk)]) {
+            if (ids[chunk] == null) {
+                ids[chunk] = new int[CHUNK_SIZE];
+                Arrays.fill(ids[chunk], FREE);
+                prices[chunk] = new double[CHUNK_SIZE];
+                chunkCount = chunk + 1;
+            }
+            ids[chunk][slot] = id;
+            prices[chunk][slot] = price;
+            addUnits(chunk, slot, MAIN, quantity);
+        }
+    }
+    
+    // Follow a change of Product.quantity by delta and of its price.
+    // Returns true if stock outside the main warehouse changed.
+    boolean change(int id, int delta, double price) {
+        int row = rowById.get(id);
+        int chunk = row >>> CHUNK_BITS;
+        int slot = row & (CHUNK_SIZE - 1);
+        synchronized (stripeLocks[stripeOf(chunk)]) {
+            prices[chunk][slot] = price;
+            if (delta >= 0) {
+                addUnits(chunk, slot, MAIN, delta);
+                return false;
+            }
+            int remaining = -delta;
+            boolean placed = false;
+            for (int location = 0; location < locations.length && remaining > 0; location++) {
+                int taken = Math.min(remaining, quantityAt(chunk, slot, location));
+                if (taken > 0) {
+                    addUnits(chunk, slot, location, -taken);
+                    remaining -= taken;
+                    placed |= location != MAIN;
+                }
+            }
+            return placed;
+        }
+    }
+    
+    // Returns true if the product had stock outside the main warehouse
+    boolean remove(int id) {
+        Integer row = rowById.remove(id);
+        if (row == null) {
+            return false;
+        }
+        int chunk = row >>> CHUNK_BITS;
+        int slot = row & (CHUNK_SIZE - 1);
+        boolean placed = false;
+        synchronized (stripeLocks[stripeOf(chunk)]) {
+            for (int location = 0; location < locations.length; location++) {
+                int quantity = quantityAt(chunk, slot, location);
+                if (quantity != 0) {
+                    addUnits(chunk, slot, location, -quantity);
+                    placed |= location != MAIN;
+                }
+            }
+            ids[chunk][slot] = FREE;
+            prices[chunk][slot] = 0;
+        }
+        freeRows.add(row);
+        return placed;
+    }
+    
+    // Forget every product; locations are kept
+    void clearStock() {
+        for (int id : new ArrayList<>(rowById.keySet())) {
+            remove(id);
+        }
+    }
+    
+    int get(int id, int location) {
+        Integer row = rowById.get(id);
+        if (row == null) {
+            return 0;
+        }
+        int chunk = row >>> CHUNK_BITS;
+        synchronized (stripeLocks[stripeOf(chunk)]) {
+            return quantityAt(chunk, row & (CHUNK_SIZE - 1), location);
+        }
+    }
+    
+    // Move stock between two locations of one product in a single step
+    void transfer(int id, int from, int to, int quantity) throws InvalidProductException {
+        int row = rowById.get(id);
+        int chunk = row >>> CHUNK_BITS;
+        int slot = row & (CHUNK_SIZE - 1);
+        synchronized (stripeLocks[stripeOf(chunk)]) {
+            int available = quantityAt(chunk, slot, from);
+            if (available < quantity) {
+                throw new InvalidProductException("Only " + available + " units of product " + id
+                    + " are at " + locations[from]);
+            }
+            addUnits(chunk, slot, from, -quantity);
+            addUnits(chunk, slot, to, quantity);
+        }
+    }
+    
+    // Units at a location, from the striped totals
+    long getUnits(int location) {
+        long units = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            synchronized (stripeLocks[stripe]) {
+                long[] stripeTotals = stripeUnits[stripe];
+                units += location < stripeTotals.length ? stripeTotals[location] : 0;
+            }
+        }
+        return units;
+    }
+    
+    // Units and value at every location, scanned in parallel chunk by chunk
+    LocationRollup rollup(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        String[] names = locations;
+        Partial partial = pool.invoke(new RollupTask(names.length, 0, chunkCount));
+        List<InventoryReport.Group> groups = new ArrayList<>(names.length);
+        for (int location = 0; location < names.length; location++) {
+            groups.add(new InventoryReport.Group(names[location], partial.products[location],
+                partial.units[location], partial.values[location]));
+        }
+        return new LocationRollup(groups, System.nanoTime() - start);
+    }
+    
+    // Locations after the main warehouse, then the stock held outside it. Each chunk is
+    // copied under its stripe lock and written after the lock is released, so transfers
+    // never wait for the disk.
+    void write(Writer writer) throws IOException {
+        String[] names = locations;
+        for (int location = 1; location < names.length; location++) {
+            writer.write("LOCATION," + names[location] + System.lineSeparator());
+        }
+        int[][] copies = new int[names.length][];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int[] chunkIds;
+            synchronized (stripeLocks[stripeOf(chunk)]) {
+                chunkIds = ids[chunk].clone();
+                for (int location = 1; location < names.length; location++) {
+                    int[] column = columns[location][chunk];
+                    copies[location] = column == null ? null : column.clone();
+                }
+            }
+            for (int location = 1; location < names.length; location++) {
+                int[] column = copies[location];
+                if (column == null) {
+                    continue;
+                }
+                for (int slot = 0; slot < CHUNK_SIZE; slot++) {
+                    if (column[slot] != 0) {
+                        writer.write("STOCK," + chunkIds[slot] + "," + location + ","
+                            + column[slot] + System.lineSeparator());
+                    }
+                }
+            }
+        }
+    }
+    
+    // Read what write() produced, moving stock out of the main warehouse. Lines naming
+    // unknown products or locations, a quantity that is not positive, or more stock than
+    // the product has, are skipped. Returns the number of skipped lines.
+    int read(BufferedReader reader) throws IOException {
+        int skipped = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(",");
+            try {
+                if (fields.length == 2 && "LOCATION".equals(fields[0]) && indexOf(fields[1]) < 0) {
+                    addLocation(fields[1]);
+                } else if (fields.length == 4 && "STOCK".equals(fields[0])) {
+                    int id = Integer.parseInt(fields[1]);
+                    int location = Integer.parseInt(fields[2]);
+                    int quantity = Integer.parseInt(fields[3]);
+                    if (!rowById.containsKey(id) || location <= MAIN || location >= locations.length
+                            || quantity <= 0) {
+                        skipped++;
+                        continue;
+                    }
+                    transfer(id, MAIN, location, quantity);
+                } else if (!line.isBlank()) {
+                    skipped++;
+                }
+            } catch (NumberFormatException | InvalidProductException e) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+    
+    private static int stripeOf(int chunk) {
+        return chunk & (STRIPES - 1);
+    }
+    
+    // Caller holds the write lock, so no transfer or lookup is using the chunk arrays
+    private void growColumns(int chunks) {
+        int capacity = Math.min(MAX_CHUNKS, Math.max(chunks, chunkCapacity * 2));
+        int locationCount = locations.length;
+        for (int location = 0; location < locationCount; location++) {
+            columns[location] = Arrays.copyOf(columns[location], capacity);
+        }
+        chunkCapacity = capacity;
+    }
+    
+    // Caller holds the chunk's stripe lock
+    private int quantityAt(int chunk, int slot, int location) {
+        int[] column = columns[location][chunk];
+        return column == null ? 0 : column[slot];
+    }
+    
+    private void addUnits(int chunk, int slot, int location, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        int[] column = columns[location][chunk];
+        if (column == null) {
+            column = new int[CHUNK_SIZE];
+            columns[location][chunk] = column;
+        }
+        column[slot] += delta;
+        int stripe = stripeOf(chunk);
+        long[] stripeTotals = stripeUnits[stripe];
+        if (location >= stripeTotals.length) {
+            stripeTotals = Arrays.copyOf(stripeTotals, Math.min(MAX_LOCATIONS,
+                Math.max(location + 1, stripeTotals.length * 2)));
+            stripeUnits[stripe] = stripeTotals;
+        }
+        stripeTotals[location] += delta;
+    }
+    
+    // Products stocked, units and value per location for a range of chunks
+    private static class Partial {
+        final int[] products;
+        final long[] units;
+        final double[] values;
+        
+        Partial(int locationCount) {
+            products = new int[locationCount];
+            units = new long[locationCount];
+            values = new double[locationCount];
+        }
+        
+        Partial merge(Partial other) {
+            for (int i = 0; i < products.length; i++) {
+                products[i] += other.products[i];
+                units[i] += other.units[i];
+                values[i] += other.values[i];
+            }
+            return this;
+        }
+    }
+    
+    private class RollupTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+        
+        private final int locationCount;
+        private final int from;
+        private final int to;
+        
+        RollupTask(int locationCount, int from, int to) {
+            this.locationCount = locationCount;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Partial compute() {
+            if (to - from <= SEQUENTIAL_CHUNKS) {
+                Partial partial = new Partial(locationCount);
+                for (int chunk = from; chunk < to; chunk++) {
+                    // Under the stripe lock a chunk is never seen halfway through a transfer
+                    synchronized (stripeLocks[stripeOf(chunk)]) {
+                        double[] price = prices[chunk];
+                        for (int location = 0; location < locationCount; location++) {
+                            int[] column = columns[location][chunk];
+                            if (column == null) {
+                                continue;
+                            }
+                            int products = 0;
+                            long units = 0;
+                            double value = 0;
+                            for (int slot = 0; slot < CHUNK_SIZE; slot++) {
+                                int quantity = column[slot];
+                                if (quantity != 0) {
+                                    products++;
+                                    units += quantity;
+                                    value += quantity * price[slot];
+                                }
+                            }
+                            partial.products[location] += products;
+                            partial.units[location] += units;
+                            partial.values[location] += value;
+                        }
+                    }
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            RollupTask left = new RollupTask(locationCount, from, mid);
+            RollupTask right = new RollupTask(locationCount, mid, to);
+            left.fork();
+            Partial rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+    }
+}
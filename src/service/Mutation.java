@@ -0,0 +1,93 @@
+package service;
+
+import model.Product;
+import exception.InvalidProductException;
+
+/**
+ * A single entry of the ProductManager mutation log
+ * Demonstrates: Immutability, Serialization to a line-based wire format
+ */
+public final class Mutation {
+    
+    public enum Op { ADD, UPDATE, DELETE }
+    
+    private static final char SEPARATOR = '\t';
+    
+    private final long offset;
+    private final long timestamp;
+    private final Op op;
+    private final int productId;
+    private final Product product;  // null for DELETE
+    
+    public Mutation(long offset, long timestamp, Op op, int productId, Product product) {
+        this.offset = offset;
+        this.timestamp = timestamp;
+        this.op = op;
+        this.productId = productId;
+        this.product = product;
+    }
+    
+    // Position of this mutation in the log (the manager's offset after applying it)
+    public long getOffset() {
+        return offset;
+    }
+    
+    // Wall-clock time (millis) at which the primary committed the mutation
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public Op getOp() {
+        return op;
+    }
+    
+    public int getProductId() {
+        return productId;
+    }
+    
+    public Product getProduct() {
+        return product;
+    }
+    
+    // Encode as one tab-separated line: offset, timestamp, op, id, product CSV
+    public String toLine() {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(offset).append(SEPARATOR)
+          .append(timestamp).append(SEPARATOR)
+          .append(op.name()).append(SEPARATOR)
+          .append(productId).append(SEPARATOR);
+        if (product != null) {
+            sb.append(product.toCSV());
+        }
+        return sb.toString();
+    }
+    
+    // Decode a line produced by toLine()
+    public static Mutation fromLine(String line) throws InvalidProductException {
+        String[] parts = line.split(String.valueOf(SEPARATOR), 5);
+        if (parts.length < 4) {
+            throw new InvalidProductException("Invalid mutation record: " + line);
+        }
+        try {
+            long offset = Long.parseLong(parts[0]);
+            long timestamp = Long.parseLong(parts[1]);
+            Op op = Op.valueOf(parts[2]);
+            int productId = Integer.parseInt(parts[3]);
+            Product product = null;
+            if (op != Op.DELETE) {
+                if (parts.length < 5 || parts[4].isEmpty()) {
+                    throw new InvalidProductException("Mutation " + offset + " has no product data");
+                }
+                product = ProductManager.createProductFromCSV(parts[4]);
+            }
+            return new Mutation(offset, timestamp, op, productId, product);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidProductException("Invalid mutation record: " + line, e);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "Mutation{offset=" + offset + ", op=" + op + ", productId=" + productId + "}";
+    }
+}
@@ -0,0 +1,19 @@
+package service;
+
+import java.util.List;
+
+/**
+ * Callback for observing committed ProductManager mutations
+ * Listeners are invoked in log order while the manager still holds its write lock,
+ * so implementations must be quick and must not call back into the manager.
+ */
+public interface MutationListener {
+    
+    // Called once per committed batch (a single CRUD call is a batch of one)
+    void onMutations(List<Mutation> batch);
+    
+    // Called after the whole catalog was replaced by a snapshot taken at the given offset;
+    // no mutation batch describes that change, so views must reload everything
+    default void onSnapshot(long offset) {
+    }
+}
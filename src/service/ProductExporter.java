@@ -0,0 +1,157 @@
+package service;
+
+import model.Accessory;
+import model.ComputerPart;
+import model.Product;
+import model.ProductCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes products one row at a time into a fixed-size byte buffer
+ * Demonstrates: NIO channels and buffers, Streaming I/O
+ * 
+ * Memory use is constant: one reused StringBuilder for the current row and one
+ * direct ByteBuffer that is flushed to the channel whenever it fills up.
+ */
+class ProductExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "type,id,name,detail,price,quantity,reorderPoint";
+    
+    private final WritableByteChannel channel;
+    private final ExportFormat format;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder row = new StringBuilder(128);
+    
+    ProductExporter(WritableByteChannel channel, ExportFormat format) {
+        this.channel = channel;
+        this.format = format;
+    }
+    
+    void writeHeader() throws IOException {
+        if (format == ExportFormat.CSV) {
+            row.setLength(0);
+            row.append(CSV_HEADER).append('\n');
+            encodeRow();
+        }
+    }
+    
+    void write(Product product) throws IOException {
+        row.setLength(0);
+        if (format == ExportFormat.CSV) {
+            appendCsv(product);
+        } else {
+            appendJson(product);
+        }
+        row.append('\n');
+        encodeRow();
+    }
+    
+    // Drain whatever is still buffered
+    void finish() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private void appendCsv(Product product) {
+        appendCsvField(product.getType()).append(',');
+        row.append(product.getId()).append(',');
+        appendCsvField(product.getName()).append(',');
+        appendCsvField(detailOf(product)).append(',');
+        row.append(product.getPrice()).append(',');
+        row.append(product.getQuantity()).append(',');
+        if (product.hasReorderPoint()) {
+            row.append(product.getReorderPoint());
+        }
+    }
+    
+    private StringBuilder appendCsvField(String value) {
+        return ProductCodec.appendField(row, value);
+    }
+    
+    private void appendJson(Product product) {
+        row.append("{\"type\":");
+        appendJsonString(product.getType());
+        row.append(",\"id\":").append(product.getId());
+        row.append(",\"name\":");
+        appendJsonString(product.getName());
+        if (product instanceof ComputerPart) {
+            row.append(",\"category\":");
+        } else {
+            row.append(",\"brand\":");
+        }
+        appendJsonString(detailOf(product));
+        row.append(",\"price\":").append(product.getPrice());
+        row.append(",\"quantity\":").append(product.getQuantity());
+        if (product.hasReorderPoint()) {
+            row.append(",\"reorderPoint\":").append(product.getReorderPoint());
+        }
+        row.append('}');
+    }
+    
+    private void appendJsonString(String value) {
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    row.append("\\\"");
+                    break;
+                case '\\':
+                    row.append("\\\\");
+                    break;
+                case '\n':
+                    row.append("\\n");
+                    break;
+                case '\r':
+                    row.append("\\r");
+                    break;
+                case '\t':
+                    row.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        row.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        row.append(c);
+                    }
+            }
+        }
+        row.append('"');
+    }
+    
+    // Encode the current row into the buffer, flushing to the channel as it fills
+    private void encodeRow() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(row);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                finish();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        encoder.reset();
+    }
+    
+    private static String detailOf(Product product) {
+        if (product instanceof ComputerPart) {
+            return ((ComputerPart) product).getCategory();
+        } else if (product instanceof Accessory) {
+            return ((Accessory) product).getBrand();
+        }
+        return "";
+    }
+}
@@ -3,58 +3,215 @@ package service;
 import model.Product;
 import model.ComputerPart;
 import model.Accessory;
+import model.ProductCodec;
+import model.ValidationError;
 import exception.DataFileException;
 import exception.InvalidProductException;
 
 import java.io.*;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * ProductManager handles CRUD operations with polymorphism
  * Demonstrates: Polymorphism, Exception Handling, File I/O
+ * 
+ * Every committed mutation is assigned a monotonically increasing offset and
+ * published to registered MutationListeners, which is what replication builds on.
+ * Local changes are saved first and applied in memory only once the save succeeded;
+ * a save writes a temporary file and renames it over the data file in one step.
  */
-public class ProductManager {
-    private static final String DATA_FILE = "data/products.txt";
+public class ProductManager implements ProductStore {
+    private static final String DEFAULT_DATA_FILE = "data/products.txt";
+    // Reorder point for products with neither their own nor a category default
+    public static final int DEFAULT_REORDER_POINT = 5;
+    private static final String READ_ONLY_MESSAGE = "This store is a read-only replica; make changes on the primary";
+    // Longest a sale or a stock transfer waits before it is saved
+    public static final long SALES_FLUSH_MILLIS = 20;
+    // Wait before a scheduled sales flush that failed to save is tried again
+    private static final long SALES_RETRY_MILLIS = 1000;
+    
+    // One daemon thread shared by every manager runs the scheduled sales flushes and location saves
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final String dataFile;
     private List<Product> products;
+    private final Map<Integer, Product> productsById = new HashMap<>();
+    
+    // Guards products and mutationOffset; writers hold it exclusively so the
+    // mutation log is published in exactly the order changes were applied
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MutationListener> mutationListeners = new CopyOnWriteArrayList<>();
+    private long mutationOffset;
+    
+    private final ReportEngine reportEngine = new ReportEngine();
+    
+    // Running totals, updated as deltas under the write lock
+    private final InventoryAggregates aggregates = new InventoryAggregates();
+    
+    // Low-stock tracking: products ordered by quantity minus reorder point
+    private final ReorderIndex reorderIndex = new ReorderIndex();
+    private final Map<String, Integer> defaultReorderPoints = new ConcurrentHashMap<>();
+    private final List<StockAlertListener> stockAlertListeners = new CopyOnWriteArrayList<>();
+    private final List<StockAlert> pendingAlerts = new ArrayList<>();
+    
+    private volatile LoadReport lastLoadReport;
+    
+    // Optional history of quantity and price changes
+    private volatile StockMovementLog movementLog;
+    
+    // Deflate level for saved snapshots; 0 writes plain text
+    private volatile int compressionLevel;
+    
+    // Set on replicas: only the primary's mutation log may change the catalog, so the
+    // mutation offset always means "applied up to this entry of the primary's log"
+    private volatile boolean readOnly;
+    
+    // Checkout path: lock-free counters for products being sold, created on first use,
+    // and the ones holding sales that are not in the catalog yet (see flushSales)
+    private final Map<Integer, StockCounter> stockCounters = new ConcurrentHashMap<>();
+    private final Queue<StockCounter> dirtyCounters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean salesFlushScheduled = new AtomicBoolean();
+    
+    // Quantities per warehouse location, saved next to the data file (see LocationStock)
+    private final LocationStock locationStock = new LocationStock();
+    private final AtomicBoolean locationSaveScheduled = new AtomicBoolean();
+    
+    // One product replaced by a batch, kept until the batch is saved; counterDelta is the
+    // change already made to the live counter (0 when the change came from the counter)
+    private static final class Change {
+        final Product before;
+        final Product after;
+        final int counterDelta;
+        final StockMovementLog.Kind kind;
+        
+        Change(Product before, Product after, int counterDelta, StockMovementLog.Kind kind) {
+            this.before = before;
+            this.after = after;
+            this.counterDelta = counterDelta;
+            this.kind = kind;
+        }
+    }
     
     public ProductManager() throws DataFileException {
+        this(DEFAULT_DATA_FILE);
+    }
+    
+    public ProductManager(String dataFile) throws DataFileException {
+        this.dataFile = dataFile;
         products = new ArrayList<>();
         loadFromFile();
+        loadLocations();
     }
     
     // CREATE: Add a new product (polymorphic parameter)
+    @Override
     public void addProduct(Product product) throws InvalidProductException, DataFileException {
         if (product == null) {
             throw new InvalidProductException("Product cannot be null");
         }
         product.validate();  // Validate before adding
-        products.add(product);
-        saveToFile();
+        checkWritable();
+        lock.writeLock().lock();
+        try {
+            if (productsById.containsKey(product.getId())) {
+                throw new InvalidProductException("Product with ID " + product.getId() + " already exists");
+            }
+            List<Product> next = new ArrayList<>(products.size() + 1);
+            next.addAll(products);
+            next.add(product);
+            writeSnapshot(next);  // Memory changes only once the catalog is on disk
+            insertProduct(product);
+            recordMovement(null, product, StockMovementLog.Kind.RECEIPT);
+            publish(Mutation.Op.ADD, product.getId(), product);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
     
     // READ: Get all products (returns polymorphic list)
     public List<Product> getAllProducts() {
-        return new ArrayList<>(products);
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(products);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // READ: Number of products (for windowed views)
+    @Override
+    public int getProductCount() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // READ: Copy only the requested window of rows, so views never hold the whole catalog
+    @Override
+    public List<Product> getProductsInRange(int from, int count) {
+        lock.readLock().lock();
+        try {
+            int start = Math.max(0, Math.min(from, products.size()));
+            int end = Math.min(products.size(), start + Math.max(0, count));
+            return new ArrayList<>(products.subList(start, end));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
     
     // READ: Get product by ID (polymorphic return type)
+    @Override
     public Product getProductById(int id) {
-        for (Product product : products) {
-            if (product.getId() == id) {
-                return product;
-            }
+        lock.readLock().lock();
+        try {
+            return findById(id);
+        } finally {
+            lock.readLock().unlock();
         }
-        return null;
     }
     
     // READ: Get only computer parts (demonstrates filtering by type)
     public List<ComputerPart> getComputerParts() {
         List<ComputerPart> parts = new ArrayList<>();
-        for (Product product : products) {
-            if (product instanceof ComputerPart) {  // Polymorphism check
-                parts.add((ComputerPart) product);
+        lock.readLock().lock();
+        try {
+            for (Product product : products) {
+                if (product instanceof ComputerPart) {  // Polymorphism check
+                    parts.add((ComputerPart) product);
+                }
             }
+        } finally {
+            lock.readLock().unlock();
         }
         return parts;
     }
@@ -62,72 +219,713 @@ public class ProductManager {
     // READ: Get only accessories (demonstrates filtering by type)
     public List<Accessory> getAccessories() {
         List<Accessory> accessories = new ArrayList<>();
-        for (Product product : products) {
-            if (product instanceof Accessory) {  // Polymorphism check
-                accessories.add((Accessory) product);
+        lock.readLock().lock();
+        try {
+            for (Product product : products) {
+                if (product instanceof Accessory) {  // Polymorphism check
+                    accessories.add((Accessory) product);
+                }
             }
+        } finally {
+            lock.readLock().unlock();
         }
         return accessories;
     }
     
     // UPDATE: Update an existing product
+    @Override
     public void updateProduct(int id, Product updatedProduct) throws InvalidProductException, DataFileException {
         if (updatedProduct == null) {
             throw new InvalidProductException("Updated product cannot be null");
         }
         
         updatedProduct.validate();  // Validate before updating
+        checkWritable();
         
-        for (int i = 0; i < products.size(); i++) {
-            if (products.get(i).getId() == id) {
-                updatedProduct.setId(id); // Keep the same ID
-                products.set(i, updatedProduct);
-                saveToFile();
-                return;
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(id);
+            if (index < 0) {
+                throw new InvalidProductException("Product with ID " + id + " not found");
+            }
+            checkReserved(id, updatedProduct.getQuantity());
+            updatedProduct.setId(id); // Keep the same ID
+            Product oldProduct = products.get(index);
+            int quantityDelta = updatedProduct.getQuantity() - oldProduct.getQuantity();
+            if (!adjustCounter(id, quantityDelta)) {
+                throw new InvalidProductException(ValidationError.NEGATIVE_QUANTITY.getMessage());
             }
+            List<Product> next = new ArrayList<>(products);
+            next.set(index, updatedProduct);
+            try {
+                writeSnapshot(next);
+            } catch (DataFileException e) {
+                undoCounter(id, quantityDelta);
+                throw e;
+            }
+            replaceProduct(index, updatedProduct, false);
+            recordMovement(oldProduct, updatedProduct, StockMovementLog.Kind.ADJUSTMENT);
+            publish(Mutation.Op.UPDATE, id, updatedProduct);
+        } finally {
+            lock.writeLock().unlock();
         }
-        throw new InvalidProductException("Product with ID " + id + " not found");
     }
     
     // DELETE: Remove a product by ID
+    @Override
     public void deleteProduct(int id) throws DataFileException, InvalidProductException {
-        for (int i = 0; i < products.size(); i++) {
-            if (products.get(i).getId() == id) {
-                products.remove(i);
-                saveToFile();
-                return;
+        checkWritable();
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(id);
+            if (index < 0) {
+                throw new InvalidProductException("Product with ID " + id + " not found");
             }
+            Product oldProduct = products.get(index);
+            List<Product> next = new ArrayList<>(products);
+            next.remove(index);
+            writeSnapshot(next);
+            removeProduct(index);
+            recordMovement(oldProduct, null, StockMovementLog.Kind.DELETE);
+            publish(Mutation.Op.DELETE, id, null);
+        } finally {
+            lock.writeLock().unlock();
         }
-        throw new InvalidProductException("Product with ID " + id + " not found");
     }
     
     // Get next available ID
+    @Override
     public int getNextId() {
         int maxId = 0;
-        for (Product product : products) {
-            if (product.getId() > maxId) {
-                maxId = product.getId();
+        lock.readLock().lock();
+        try {
+            for (Product product : products) {
+                if (product.getId() > maxId) {
+                    maxId = product.getId();
+                }
             }
+        } finally {
+            lock.readLock().unlock();
         }
         return maxId + 1;
     }
     
-    // Calculate total inventory value (demonstrates polymorphism)
+    // Total inventory value, read from the running aggregates in O(1)
     public double getTotalInventoryValue() {
-        double total = 0;
-        for (Product product : products) {
-            total += product.getTotalValue();  // Polymorphic method call
+        return getAggregates().getTotalValue();
+    }
+    
+    // Cheap, consistent view of the running totals and per-type/category/brand subtotals
+    public InventoryAggregates.Snapshot getAggregates() {
+        lock.readLock().lock();
+        try {
+            return aggregates.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Recompute the aggregates with a full scan (demonstrates polymorphism);
+    // used to verify the incrementally maintained totals
+    public InventoryAggregates.Snapshot recomputeAggregates() {
+        lock.readLock().lock();
+        try {
+            return InventoryAggregates.recompute(products);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // LOW STOCK: Products below their reorder point, most urgent first (O(log n + k))
+    public List<Product> getLowStockProducts() {
+        lock.readLock().lock();
+        try {
+            List<Product> lowStock = new ArrayList<>();
+            for (int id : reorderIndex.lowStockIds()) {
+                lowStock.add(productsById.get(id));
+            }
+            return lowStock;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // LOW STOCK: Effective reorder point (own, category default, or global default)
+    public int getReorderPoint(Product product) {
+        return reorderPointOf(product);
+    }
+    
+    // LOW STOCK: Set the reorder point used by products of a category (or accessory brand)
+    // that have none of their own; affected products are re-indexed and alerted if they cross
+    public void setDefaultReorderPoint(String category, int reorderPoint) {
+        lock.writeLock().lock();
+        try {
+            defaultReorderPoints.put(category, reorderPoint);
+            for (Product product : products) {
+                if (!product.hasReorderPoint() && category.equals(categoryOf(product))) {
+                    trackStock(product);
+                }
+            }
+            fireStockAlerts();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void addStockAlertListener(StockAlertListener listener) {
+        stockAlertListeners.add(listener);
+    }
+    
+    public void removeStockAlertListener(StockAlertListener listener) {
+        stockAlertListeners.remove(listener);
+    }
+    
+    // EXPORT: Stream matching products as CSV or JSON Lines straight into the channel.
+    // Products are never changed in place, so copying the references under the read lock
+    // (as generateReport does) gives a consistent snapshot; the file is written with no
+    // lock held, so writers and the UI are not held up by a slow or large export.
+    // Returns the number of products written.
+    public long exportProducts(WritableByteChannel channel, ExportFormat format,
+                               Predicate<Product> filter, ExportProgress progress) throws DataFileException {
+        Product[] snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = products.toArray(new Product[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+        ProductExporter exporter = new ProductExporter(channel, format);
+        long written = 0;
+        try {
+            long total = snapshot.length;
+            exporter.writeHeader();
+            for (int i = 0; i < total; i++) {
+                if (progress != null && (i & 1023) == 0) {
+                    if (progress.isCancelled()) {
+                        break;
+                    }
+                    progress.onProgress(i, total);
+                }
+                Product product = snapshot[i];
+                if (filter == null || filter.test(product)) {
+                    exporter.write(product);
+                    written++;
+                }
+            }
+            exporter.finish();
+            if (progress != null && !progress.isCancelled()) {
+                progress.onProgress(total, total);
+            }
+        } catch (IOException e) {
+            throw new DataFileException("Error exporting products", e);
+        }
+        return written;
+    }
+    
+    // HISTORY: Start recording every quantity and price change in a columnar log
+    public void enableMovementLog(String directory) throws DataFileException {
+        lock.writeLock().lock();
+        try {
+            if (movementLog == null) {
+                movementLog = new StockMovementLog(new File(directory));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // PERSISTENCE: Save snapshots as independently deflated blocks (level 1-9), or as plain
+    // text with 0. Loading detects the format, so either kind of file can be read back.
+    public void setSnapshotCompression(int level) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        }
+        compressionLevel = level;
+    }
+    
+    public int getSnapshotCompression() {
+        return compressionLevel;
+    }
+    
+    // HISTORY: The movement log, or null if it was never enabled
+    public StockMovementLog getMovementLog() {
+        return movementLog;
+    }
+    
+    // REPORTS: Run parallel group-by, top-N and percentile aggregations.
+    // Only copying the references into an array happens under the read lock;
+    // the fork/join reduction itself runs without blocking writers.
+    public InventoryReport generateReport(ReportEngine.GroupBy groupBy, int topN) {
+        Product[] snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = products.toArray(new Product[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return reportEngine.run(snapshot, groupBy, topN);
+    }
+    
+    // REPLICATION: Register a listener for committed mutations
+    public void addMutationListener(MutationListener listener) {
+        mutationListeners.add(listener);
+    }
+    
+    public void removeMutationListener(MutationListener listener) {
+        mutationListeners.remove(listener);
+    }
+    
+    // REPLICATION: Offset of the last committed mutation
+    public long getMutationOffset() {
+        lock.readLock().lock();
+        try {
+            return mutationOffset;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // REPLICATION: Feed a consistent view of all products to the sink and
+    // return the mutation offset that view corresponds to
+    public long readSnapshot(Consumer<Product> sink) {
+        lock.readLock().lock();
+        try {
+            for (Product product : products) {
+                sink.accept(product);
+            }
+            return mutationOffset;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // REPLICATION: Replace the whole catalog with a snapshot taken at the given offset
+    public void installSnapshot(List<Product> snapshot, long offset) throws DataFileException {
+        lock.writeLock().lock();
+        try {
+            List<Product> next = new ArrayList<>(snapshot);
+            writeSnapshot(next);
+            products = next;
+            mutationOffset = offset;
+            rebuildIndexes();
+            for (MutationListener listener : mutationListeners) {
+                listener.onSnapshot(offset);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // REPLICATION: Apply a batch of mutations received from a primary, persisting once.
+    // Entries at or below the current offset have already been applied and are skipped.
+    public void applyMutations(List<Mutation> batch) throws DataFileException {
+        List<Mutation> applied = new ArrayList<>(batch.size());
+        DataFileException gap = null;
+        lock.writeLock().lock();
+        try {
+            for (Mutation mutation : batch) {
+                if (mutation.getOffset() <= mutationOffset) {
+                    continue;
+                }
+                if (mutation.getOffset() != mutationOffset + 1) {
+                    // Never skip ahead: the entries in between would be lost without a trace.
+                    // What was applied so far is kept and the caller resyncs from there.
+                    gap = new DataFileException("Replication gap: expected offset " + (mutationOffset + 1)
+                        + " but received " + mutation.getOffset());
+                    break;
+                }
+                int index = indexOf(mutation.getProductId());
+                Product oldProduct = index >= 0 ? products.get(index) : null;
+                switch (mutation.getOp()) {
+                    case ADD:
+                    case UPDATE:
+                        if (index >= 0) {
+                            replaceProduct(index, mutation.getProduct(), true);
+                        } else {
+                            insertProduct(mutation.getProduct());
+                        }
+                        // Mutations do not carry the cause, so a replica logs edits as adjustments
+                        recordMovement(oldProduct, mutation.getProduct(), oldProduct == null
+                            ? StockMovementLog.Kind.RECEIPT : StockMovementLog.Kind.ADJUSTMENT);
+                        break;
+                    case DELETE:
+                        if (index >= 0) {
+                            removeProduct(index);
+                            recordMovement(oldProduct, null, StockMovementLog.Kind.DELETE);
+                        }
+                        break;
+                }
+                mutationOffset = mutation.getOffset();
+                applied.add(mutation);
+            }
+            if (!applied.isEmpty()) {
+                saveToFile();
+                notifyListeners(applied);
+            }
+            if (gap != null) {
+                throw gap;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // BULK: Apply a batch of supplier updates, found through the ID index, then persist
+    // once and publish the batch together; readers see all of it or none of it, and if the
+    // save fails nothing changes. Unknown IDs and updates that would make the price or
+    // quantity negative are skipped and recorded in the report. Returns the number of
+    // products changed.
+    public int applyStockUpdates(List<StockUpdate> batch, LoadReport report) throws DataFileException {
+        if (readOnly) {
+            throw new DataFileException(READ_ONLY_MESSAGE);
+        }
+        List<Change> changes = new ArrayList<>();
+        Map<Integer, Product> latest = new HashMap<>();
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            for (StockUpdate update : batch) {
+                ValidationError error = update.getError();
+                Product product = error == null ? latestVersion(latest, update.getProductId()) : null;
+                if (error == null && product == null) {
+                    error = ValidationError.UNKNOWN_PRODUCT;
+                }
+                int oldQuantity = product != null ? product.getQuantity() : 0;
+                double oldPrice = product != null ? product.getPrice() : 0;
+                int quantity = oldQuantity + update.getQuantityDelta();
+                double price = update.hasPrice() ? update.getPrice() : oldPrice;
+                if (error == null && quantity < 0) {
+                    error = ValidationError.NEGATIVE_QUANTITY;
+                } else if (error == null && Double.isInfinite(price)) {
+                    error = ValidationError.BAD_NUMBER;
+                } else if (error == null && price < 0) {
+                    error = ValidationError.NEGATIVE_PRICE;
+                } else if (error == null && !adjustCounter(product.getId(), quantity - oldQuantity)) {
+                    error = ValidationError.NEGATIVE_QUANTITY;  // Unflushed sales took the units
+                }
+                if (error != null) {
+                    report.recordRejected(update.getLineNumber(), error);
+                    continue;
+                }
+                report.recordLoaded();
+                if (quantity != oldQuantity || price != oldPrice) {
+                    Product updated = withStock(product, quantity, price);
+                    // Feed lines report supplier deliveries and point-of-sale sales
+                    changes.add(new Change(product, updated, quantity - oldQuantity, quantity < oldQuantity
+                        ? StockMovementLog.Kind.SALE : StockMovementLog.Kind.RECEIPT));
+                    latest.put(updated.getId(), updated);
+                }
+            }
+            List<Mutation> applied = commitChanges(changes, latest, now);
+            if (!applied.isEmpty()) {
+                notifyListeners(applied);
+            }
+            return applied.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // BATCH: Apply one action to all the given products as a single transaction: the write
+    // lock is taken once, the catalog is checked before anything changes (so either every
+    // product is changed or none is), the file is saved once and listeners get one batch.
+    // Returns the number of products changed.
+    public int applyBatch(Collection<Integer> ids, BatchAction action)
+            throws InvalidProductException, DataFileException {
+        if (action == null) {
+            throw new InvalidProductException("Batch action cannot be null");
+        }
+        checkWritable();
+        if (action.getKind() == BatchAction.Kind.SET_QUANTITY && action.getValue() < 0) {
+            throw new InvalidProductException(ValidationError.NEGATIVE_QUANTITY.getMessage());
+        }
+        if (action.getKind() == BatchAction.Kind.ADJUST_PRICE && !Double.isFinite(action.getValue())) {
+            throw new InvalidProductException(ValidationError.INVALID_PRICE.getMessage());
+        }
+        if (action.getKind() == BatchAction.Kind.ADJUST_PRICE && action.getValue() < -100) {
+            throw new InvalidProductException(ValidationError.NEGATIVE_PRICE.getMessage());
+        }
+        Set<Integer> idSet = new HashSet<>(ids);
+        List<Mutation> applied = new ArrayList<>(idSet.size());
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            for (int id : idSet) {
+                if (findById(id) == null) {
+                    throw new InvalidProductException("Product with ID " + id + " not found");
+                }
+                if (action.getKind() == BatchAction.Kind.SET_QUANTITY) {
+                    checkReserved(id, (int) action.getValue());
+                }
+            }
+            if (idSet.isEmpty()) {
+                return 0;
+            }
+            
+            if (action.getKind() == BatchAction.Kind.DELETE) {
+                // One pass over the list instead of a search and shift per product
+                List<Product> next = new ArrayList<>(products.size());
+                List<Product> removed = new ArrayList<>(idSet.size());
+                for (Product product : products) {
+                    (idSet.contains(product.getId()) ? removed : next).add(product);
+                }
+                writeSnapshot(next);
+                products = next;
+                for (Product product : removed) {
+                    unindexProduct(product);
+                    appendMovement(product, StockMovementLog.Kind.DELETE, -product.getQuantity(), true);
+                    mutationOffset++;
+                    applied.add(new Mutation(mutationOffset, now, Mutation.Op.DELETE, product.getId(), null));
+                }
+            } else {
+                List<Change> changes = new ArrayList<>(idSet.size());
+                Map<Integer, Product> latest = new HashMap<>();
+                for (int id : idSet) {
+                    Product product = findById(id);
+                    int quantity = product.getQuantity();
+                    double price = product.getPrice();
+                    if (action.getKind() == BatchAction.Kind.SET_QUANTITY) {
+                        quantity = (int) action.getValue();
+                    } else {
+                        price = Math.round(price * (100 + action.getValue())) / 100.0;
+                    }
+                    if (quantity != product.getQuantity() || price != product.getPrice()) {
+                        if (!adjustCounter(id, quantity - product.getQuantity())) {
+                            undoCounters(changes);  // All or nothing
+                            throw new InvalidProductException(ValidationError.NEGATIVE_QUANTITY.getMessage());
+                        }
+                        Product updated = withStock(product, quantity, price);
+                        changes.add(new Change(product, updated, quantity - product.getQuantity(),
+                            StockMovementLog.Kind.ADJUSTMENT));
+                        latest.put(id, updated);
+                    }
+                }
+                applied = commitChanges(changes, latest, now);
+            }
+            
+            if (!applied.isEmpty()) {
+                notifyListeners(applied);
+            }
+            return applied.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // CHECKOUT: Hold units of a product for a checkout until commit or release. Lock-free:
+    // one compare-and-set on the product's counter, the catalog lock is not taken.
+    // Returns null if fewer units are available (on hand minus already reserved).
+    public Reservation reserve(int id, int quantity) throws InvalidProductException {
+        checkWritable();
+        StockCounter counter = counterFor(id, quantity);
+        return counter.reserve(quantity) ? new Reservation(counter, quantity) : null;
+    }
+    
+    // CHECKOUT: The reserved units are sold. Returns false, dropping the hold, if the product
+    // was deleted or its quantity was corrected below the reservation in the meantime.
+    public boolean commit(Reservation reservation) throws InvalidProductException {
+        settle(reservation);
+        StockCounter counter = reservation.getCounter();
+        if (!counter.commit(reservation.getQuantity())) {
+            return false;
+        }
+        salesChanged(counter);
+        return true;
+    }
+    
+    // CHECKOUT: Give the reserved units back
+    public void release(Reservation reservation) throws InvalidProductException {
+        settle(reservation);
+        reservation.getCounter().release(reservation.getQuantity());
+    }
+    
+    // CHECKOUT: Sell units nobody has reserved, lock-free; false if fewer are available.
+    // The catalog quantity, totals, alerts and data file follow within SALES_FLUSH_MILLIS,
+    // every sale made in that window going to disk with a single save.
+    public boolean sell(int id, int quantity) throws InvalidProductException {
+        checkWritable();
+        StockCounter counter = counterFor(id, quantity);
+        if (!counter.sell(quantity)) {
+            return false;
+        }
+        salesChanged(counter);
+        return true;
+    }
+    
+    // Live stock that can still be sold or reserved, including sales not flushed yet
+    public int getAvailableQuantity(int id) throws InvalidProductException {
+        return counterFor(id, 1).getAvailable();
+    }
+    
+    public int getReservedQuantity(int id) throws InvalidProductException {
+        return counterFor(id, 1).getReserved();
+    }
+    
+    // CHECKOUT: Fold the sales made since the last flush into the catalog, save once and
+    // publish them as one batch. Runs by itself SALES_FLUSH_MILLIS after a sale; call it
+    // directly when every sale so far must be on disk (e.g. before shutting down).
+    public void flushSales() throws DataFileException {
+        List<Change> changes = new ArrayList<>();
+        Map<Integer, Product> latest = new HashMap<>();
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            // Take the queued counters first: a sale made after a counter's flag is cleared
+            // below queues it again for the next flush instead of extending this one
+            List<StockCounter> batch = new ArrayList<>();
+            StockCounter counter;
+            while ((counter = dirtyCounters.poll()) != null) {
+                batch.add(counter);
+            }
+            for (StockCounter dirty : batch) {
+                dirty.clearDirty();
+                Product product = findById(dirty.getProductId());
+                int onHand = dirty.getOnHand();
+                if (product != null && !dirty.isRetired() && onHand != product.getQuantity()) {
+                    // The counter already holds these sales, so it is not adjusted again
+                    Product updated = withStock(product, onHand, product.getPrice());
+                    changes.add(new Change(product, updated, 0, StockMovementLog.Kind.SALE));
+                    latest.put(updated.getId(), updated);
+                }
+            }
+            List<Mutation> applied;
+            try {
+                applied = commitChanges(changes, latest, now);
+            } catch (DataFileException e) {
+                // Nothing was applied; queue the counters again so these sales are saved later
+                for (StockCounter dirty : batch) {
+                    if (dirty.markDirty()) {
+                        dirtyCounters.add(dirty);
+                    }
+                }
+                throw e;
+            }
+            if (!applied.isEmpty()) {
+                notifyListeners(applied);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // LOCATIONS: Warehouse names; index 0 is the main warehouse, which receives stock
+    // added without a location and gives it up first when stock is taken without one
+    public List<String> getLocations() {
+        return locationStock.getLocations();
+    }
+    
+    // LOCATIONS: Add a warehouse (initially empty) and return its index
+    public int addLocation(String name) throws InvalidProductException, DataFileException {
+        if (name == null || name.isBlank() || name.contains(",") || name.contains("\n") || name.contains("\r")) {
+            throw new InvalidProductException("Location name cannot be empty or contain commas or line breaks");
+        }
+        checkWritable();
+        lock.writeLock().lock();
+        try {
+            if (locationStock.indexOf(name.trim()) >= 0) {
+                throw new InvalidProductException("Location " + name.trim() + " already exists");
+            }
+            if (locationStock.getLocationCount() == LocationStock.MAX_LOCATIONS) {
+                throw new InvalidProductException("At most " + LocationStock.MAX_LOCATIONS + " locations are supported");
+            }
+            int index = locationStock.addLocation(name.trim());
+            saveLocations();
+            return index;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return total;
     }
     
-    // Load data from file with proper exception handling
-    public void loadFromFile() throws DataFileException {
-        File file = new File(DATA_FILE);
+    // LOCATIONS: Units of the product at one location
+    public int getQuantityAt(int id, int location) throws InvalidProductException {
+        lock.readLock().lock();
+        try {
+            checkLocation(id, location);
+            return locationStock.get(id, location);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // LOCATIONS: Move units of a product between two locations in one step. Only the
+    // product's lock stripe is held exclusively, so transfers of different products run
+    // in parallel; the product's total is unchanged. Saved within SALES_FLUSH_MILLIS.
+    public void transferStock(int id, int from, int to, int quantity) throws InvalidProductException {
+        checkWritable();
+        if (quantity <= 0) {
+            throw new InvalidProductException("Quantity must be positive");
+        }
+        lock.readLock().lock();
+        try {
+            checkLocation(id, from);
+            checkLocation(id, to);
+            if (from == to) {
+                throw new InvalidProductException("Source and destination are the same location");
+            }
+            locationStock.transfer(id, from, to, quantity);
+        } finally {
+            lock.readLock().unlock();
+        }
+        locationsChanged();
+    }
+    
+    // LOCATIONS: Units at one location, read from the running striped totals
+    public long getUnitsAt(int location) throws InvalidProductException {
+        if (location < 0 || location >= locationStock.getLocationCount()) {
+            throw new InvalidProductException("Location " + location + " does not exist");
+        }
+        return locationStock.getUnits(location);
+    }
+    
+    // LOCATIONS: Products stocked, units and value at every location. Scans the stock
+    // matrix on the fork/join pool chunk by chunk without taking the catalog lock.
+    public LocationRollup rollupLocations() {
+        return locationStock.rollup(ForkJoinPool.commonPool());
+    }
+    
+    // LOCATIONS: Write the locations and the stock held outside the main warehouse
+    // to the data file's ".locations" companion
+    public void saveLocations() throws DataFileException {
+        File file = new File(dataFile + ".locations");
+        lock.readLock().lock();
+        try {
+            if (locationStock.getLocationCount() == 1 && !file.exists()) {
+                return;
+            }
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 64 * 1024)) {
+                locationStock.write(writer);
+            }
+        } catch (IOException e) {
+            throw new DataFileException("Error saving locations file", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // REPLICATION: Refuse local changes (edits, batches, feeds, sales, transfers) so a replica
+    // only ever changes through applyMutations and installSnapshot
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+    
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+    
+    // Rows accepted and rejected (with line numbers and error codes) by the last load
+    public LoadReport getLastLoadReport() {
+        return lastLoadReport;
+    }
+    
+    // Load data from file with proper exception handling; only the constructor calls this,
+    // so the catalog is still empty
+    private void loadFromFile() throws DataFileException {
+        File file = new File(dataFile);
+        lastLoadReport = new LoadReport(file.getName());
         
         // Create data directory if it doesn't exist
-        File dataDir = new File("data");
-        if (!dataDir.exists()) {
+        File dataDir = file.getAbsoluteFile().getParentFile();
+        if (dataDir != null && !dataDir.exists()) {
             if (!dataDir.mkdirs()) {
                 throw new DataFileException("Failed to create data directory");
             }
@@ -145,62 +943,529 @@ public class ProductManager {
             }
         }
         
-        // Read data from file
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNumber = 0;
-            
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                if (line.trim().isEmpty()) {
-                    continue; // Skip empty lines
-                }
-                
-                try {
-                    Product product = createProductFromCSV(line);
-                    if (product != null) {
-                        products.add(product);
-                    }
-                } catch (InvalidProductException e) {
-                    // Log error but continue loading other products
-                    System.err.println("Error loading line " + lineNumber + ": " + e.getMessage());
-                }
+        // Read data from file; bad rows are collected as error codes in a LoadReport instead of throwing
+        LoadReport report = new LoadReport(file.getName());
+        lock.writeLock().lock();
+        try (BufferedReader reader = openSnapshotReader(file)) {
+            readProducts(reader, report, this::loadProduct);
+            pendingAlerts.clear();  // Existing low stock is listed, not alerted
+            lastLoadReport = report;
+            if (report.hasErrors()) {
+                System.err.println("Error loading " + report.getSummary());
             }
         } catch (IOException e) {
             throw new DataFileException("Error reading data file", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Parse every record of a snapshot, handing valid products to the sink and recording
+    // rejected rows in the report; each line is tokenized exactly once by the codec.
+    // The sink returns null when it takes the product, or the code it was rejected with.
+    static void readProducts(BufferedReader reader, LoadReport report, Function<Product, ValidationError> sink)
+            throws IOException {
+        ProductCodec codec = new ProductCodec();
+        StringBuilder record = new StringBuilder(128);
+        String line;
+        int lineNumber = 0;
+        
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue; // Skip empty lines
+            }
+            int recordLine = lineNumber;
+            
+            // A quoted field may contain line breaks; keep reading until it closes
+            ValidationError error = codec.scan(line);
+            if (error == ValidationError.UNTERMINATED_QUOTE) {
+                record.setLength(0);
+                record.append(line);
+                String next;
+                while (error == ValidationError.UNTERMINATED_QUOTE && (next = reader.readLine()) != null) {
+                    lineNumber++;
+                    record.append('\n').append(next);
+                    error = codec.scan(record);
+                }
+            }
+            
+            Product product = error == null ? decodeProduct(codec) : null;
+            if (product != null) {
+                error = sink.apply(product);
+                if (error == null) {
+                    report.recordLoaded();
+                } else {
+                    report.recordRejected(recordLine, error);
+                }
+            } else {
+                // Record the error but continue loading other products
+                report.recordRejected(recordLine, codec.getError());
+            }
         }
     }
     
     // Factory method to create products from CSV (demonstrates polymorphism)
-    private Product createProductFromCSV(String csvLine) throws InvalidProductException {
-        String[] parts = csvLine.split(",");
-        if (parts.length < 1) {
-            throw new InvalidProductException("Empty CSV line");
+    static Product createProductFromCSV(String csvLine) throws InvalidProductException {
+        ProductCodec codec = ProductCodec.forCurrentThread();
+        if (!codec.tokenize(csvLine)) {
+            throw new InvalidProductException("Invalid CSV format: unterminated quote");
         }
-        
-        String type = parts[0].trim();
-        
-        // Polymorphic object creation based on type
-        switch (type) {
-            case "ComputerPart":
-                return ComputerPart.fromCSV(csvLine);
-            case "Accessory":
-                return Accessory.fromCSV(csvLine);
-            default:
-                throw new InvalidProductException("Unknown product type: " + type);
+        return createProduct(codec);
+    }
+    
+    private static Product createProduct(ProductCodec row) throws InvalidProductException {
+        Product product = decodeProduct(row);
+        if (product == null) {
+            throw row.toException();
         }
+        return product;
+    }
+    
+    // Polymorphic object creation based on the type column of a tokenized row;
+    // returns null and records the error code on the row instead of throwing
+    static Product decodeProduct(ProductCodec row) {
+        if (row.fieldEquals(ProductCodec.TYPE, "ComputerPart")) {
+            return ComputerPart.decode(row);
+        } else if (row.fieldEquals(ProductCodec.TYPE, "Accessory")) {
+            return Accessory.decode(row);
+        }
+        row.fail(ValidationError.UNKNOWN_TYPE);
+        return null;
     }
     
     // Save data to file with proper exception handling
     public void saveToFile() throws DataFileException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_FILE))) {
-            for (Product product : products) {
-                writer.write(product.toCSV());  // Polymorphic method call
-                writer.newLine();
+        lock.readLock().lock();
+        try {
+            writeSnapshot(products);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Write the rows to a temporary file beside the data file and rename it over the data
+    // file in one atomic step, so a failed save leaves the previous snapshot intact
+    private void writeSnapshot(List<Product> rows) throws DataFileException {
+        File target = new File(dataFile).getAbsoluteFile();
+        File temp = null;
+        // Rows are built in one reused builder and copied through one reused char buffer
+        StringBuilder row = new StringBuilder(128);
+        char[] chars = new char[128];
+        try {
+            temp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+            try (BufferedWriter writer = openSnapshotWriter(temp)) {
+                for (Product product : rows) {
+                    row.setLength(0);
+                    product.writeCSV(row);  // Polymorphic method call
+                    row.append(System.lineSeparator());
+                    if (row.length() > chars.length) {
+                        chars = new char[row.length() * 2];
+                    }
+                    row.getChars(0, row.length(), chars, 0);
+                    writer.write(chars, 0, row.length());
+                }
             }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
+            if (temp != null && temp.exists() && !temp.delete()) {
+                System.err.println("Could not delete " + temp);
+            }
             throw new DataFileException("Error saving data file", e);
         }
     }
+    
+    // Compressed snapshots are inflated block by block in parallel ahead of the parser
+    static BufferedReader openSnapshotReader(File file) throws IOException {
+        if (SnapshotCompression.isCompressed(file)) {
+            return new BufferedReader(new InputStreamReader(
+                new SnapshotCompression.BlockInputStream(new BufferedInputStream(new FileInputStream(file)))), 64 * 1024);
+        }
+        return new BufferedReader(new FileReader(file));
+    }
+    
+    private BufferedWriter openSnapshotWriter(File file) throws IOException {
+        int level = compressionLevel;
+        if (level > 0) {
+            return new BufferedWriter(new OutputStreamWriter(
+                new SnapshotCompression.BlockOutputStream(new FileOutputStream(file), level)), 64 * 1024);
+        }
+        return new BufferedWriter(new FileWriter(file), 64 * 1024);
+    }
+    
+    // Lookup helpers; callers must hold the lock
+    private Product findById(int id) {
+        return productsById.get(id);
+    }
+    
+    // Position in the list (linear search, only needed to replace or remove)
+    private int indexOf(int id) {
+        if (!productsById.containsKey(id)) {
+            return -1;
+        }
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // The product's live counter, created from its catalog quantity on first use
+    private StockCounter counterFor(int id, int quantity) throws InvalidProductException {
+        if (quantity <= 0) {
+            throw new InvalidProductException("Quantity must be positive");
+        }
+        StockCounter counter = stockCounters.get(id);
+        if (counter != null) {
+            return counter;
+        }
+        // Under the read lock the quantity cannot change and the product cannot be deleted
+        lock.readLock().lock();
+        try {
+            Product product = findById(id);
+            if (product == null) {
+                throw new InvalidProductException("Product with ID " + id + " not found");
+            }
+            return stockCounters.computeIfAbsent(id, key -> new StockCounter(key, product.getQuantity()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void settle(Reservation reservation) throws InvalidProductException {
+        if (reservation == null) {
+            throw new InvalidProductException("Reservation cannot be null");
+        }
+        if (!reservation.settle()) {
+            throw new InvalidProductException("Reservation was already committed or released");
+        }
+    }
+    
+    // Queue the counter for the next flush and make sure one is scheduled
+    private void salesChanged(StockCounter counter) {
+        if (!counter.markDirty()) {
+            return;
+        }
+        dirtyCounters.add(counter);
+        if (salesFlushScheduled.compareAndSet(false, true)) {
+            FLUSHER.schedule(this::flushScheduledSales, SALES_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void flushScheduledSales() {
+        salesFlushScheduled.set(false);
+        try {
+            flushSales();
+        } catch (DataFileException e) {
+            System.err.println("Error saving sales, retrying: " + e.getMessage());
+            if (salesFlushScheduled.compareAndSet(false, true)) {
+                FLUSHER.schedule(this::flushScheduledSales, SALES_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+    
+    // Products are placed in the main warehouse as they are loaded; the companion file
+    // then moves the recorded stock out to the other locations
+    private void loadLocations() throws DataFileException {
+        File file = new File(dataFile + ".locations");
+        if (!file.exists()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            int skipped = locationStock.read(reader);
+            if (skipped > 0) {
+                System.err.println("Skipped " + skipped + " invalid lines in " + file.getName());
+            }
+        } catch (IOException e) {
+            throw new DataFileException("Error reading locations file", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Caller holds the lock
+    private void checkLocation(int id, int location) throws InvalidProductException {
+        if (findById(id) == null) {
+            throw new InvalidProductException("Product with ID " + id + " not found");
+        }
+        if (location < 0 || location >= locationStock.getLocationCount()) {
+            throw new InvalidProductException("Location " + location + " does not exist");
+        }
+    }
+    
+    // Schedule a save of the locations file unless one is pending already
+    private void locationsChanged() {
+        if (locationSaveScheduled.compareAndSet(false, true)) {
+            FLUSHER.schedule(this::saveScheduledLocations, SALES_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void saveScheduledLocations() {
+        locationSaveScheduled.set(false);
+        try {
+            saveLocations();
+        } catch (DataFileException e) {
+            System.err.println("Error saving locations: " + e.getMessage());
+        }
+    }
+    
+    private void checkWritable() throws InvalidProductException {
+        if (readOnly) {
+            throw new InvalidProductException(READ_ONLY_MESSAGE);
+        }
+    }
+    
+    // Catalog quantities may not drop below what checkouts are holding; caller holds the lock
+    private void checkReserved(int id, int quantity) throws InvalidProductException {
+        StockCounter counter = stockCounters.get(id);
+        if (counter != null && quantity < counter.getReserved()) {
+            throw new InvalidProductException("Product with ID " + id + " has "
+                + counter.getReserved() + " units reserved");
+        }
+    }
+    
+    // Carry a quantity change made through the catalog over to the live counter, on top of
+    // any sales it holds that are not flushed yet. False, changing nothing, if those sales
+    // leave too few units for it; caller holds the write lock.
+    private boolean adjustCounter(int id, int quantityDelta) {
+        StockCounter counter = stockCounters.get(id);
+        return counter == null || quantityDelta == 0 || counter.adjust(quantityDelta);
+    }
+    
+    // Take back adjustCounter for a change that is not going to be saved
+    private void undoCounter(int id, int quantityDelta) {
+        StockCounter counter = stockCounters.get(id);
+        if (counter != null && quantityDelta != 0) {
+            counter.undoAdjust(quantityDelta);
+        }
+    }
+    
+    private void undoCounters(List<Change> changes) {
+        for (Change change : changes) {
+            undoCounter(change.after.getId(), change.counterDelta);
+        }
+    }
+    
+    // Assign the next offset and hand the mutation to listeners; caller holds the write lock
+    private void publish(Mutation.Op op, int productId, Product product) {
+        mutationOffset++;
+        Mutation mutation = new Mutation(mutationOffset, System.currentTimeMillis(), op, productId, product);
+        notifyListeners(Collections.singletonList(mutation));
+    }
+    
+    private void notifyListeners(List<Mutation> batch) {
+        for (MutationListener listener : mutationListeners) {
+            listener.onMutations(batch);
+        }
+        fireStockAlerts();
+    }
+    
+    private void fireStockAlerts() {
+        for (StockAlert alert : pendingAlerts) {
+            for (StockAlertListener listener : stockAlertListeners) {
+                listener.onStockAlert(alert);
+            }
+        }
+        pendingAlerts.clear();
+    }
+    
+    // Load one row of the data file; the first row with an ID wins
+    private ValidationError loadProduct(Product product) {
+        if (productsById.containsKey(product.getId())) {
+            return ValidationError.DUPLICATE_ID;
+        }
+        insertProduct(product);
+        return null;
+    }
+    
+    // Index maintenance shared by every mutation path; callers hold the write lock
+    private void insertProduct(Product product) {
+        products.add(product);
+        productsById.put(product.getId(), product);
+        aggregates.add(product);
+        trackStock(product);
+        locationStock.add(product.getId(), product.getQuantity(), product.getPrice());
+    }
+    
+    // Local updates have moved the live counter already (adjustCounter); a replica's counters
+    // hold no sales, so they follow the primary's quantity exactly
+    private void replaceProduct(int index, Product product, boolean followCounter) {
+        Product old = products.set(index, product);
+        productsById.put(product.getId(), product);
+        if (followCounter) {
+            adjustCounter(product.getId(), product.getQuantity() - old.getQuantity());
+        }
+        if (locationStock.change(product.getId(), product.getQuantity() - old.getQuantity(), product.getPrice())) {
+            locationsChanged();
+        }
+        aggregates.replace(old, product);
+        trackStock(product);
+    }
+    
+    private void removeProduct(int index) {
+        unindexProduct(products.remove(index));
+    }
+    
+    // Drop a product that has left the list from the ID index, totals and reorder index
+    private void unindexProduct(Product old) {
+        productsById.remove(old.getId());
+        if (locationStock.remove(old.getId())) {
+            locationsChanged();
+        }
+        StockCounter counter = stockCounters.remove(old.getId());
+        if (counter != null) {
+            counter.retire();
+        }
+        aggregates.remove(old);
+        if (reorderIndex.remove(old.getId())) {
+            pendingAlerts.add(new StockAlert(StockAlert.Kind.REMOVED, old.getId(), old.getName(),
+                old.getQuantity(), reorderPointOf(old)));
+        }
+    }
+    
+    private void rebuildIndexes() {
+        // Outstanding reservations do not survive replacing the whole catalog
+        stockCounters.values().forEach(StockCounter::retire);
+        stockCounters.clear();
+        // Placement is local to this store: a replaced catalog starts in the main warehouse
+        locationStock.clearStock();
+        productsById.clear();
+        aggregates.clear();
+        reorderIndex.clear();
+        for (Product product : products) {
+            productsById.put(product.getId(), product);
+            aggregates.add(product);
+            trackStock(product);
+            locationStock.add(product.getId(), product.getQuantity(), product.getPrice());
+        }
+        locationsChanged();
+        pendingAlerts.clear();
+    }
+    
+    // Move the product in the reorder index and queue an alert if it crossed its threshold
+    private void trackStock(Product product) {
+        int reorderPoint = reorderPointOf(product);
+        StockAlert.Kind kind = reorderIndex.update(product.getId(), product.getQuantity(), reorderPoint);
+        if (kind != null) {
+            pendingAlerts.add(new StockAlert(kind, product.getId(), product.getName(),
+                product.getQuantity(), reorderPoint));
+        }
+    }
+    
+    // Append a movement if quantity or price changed; before/after are null for add/delete.
+    // History is best effort: a failing log never fails the mutation itself.
+    private void recordMovement(Product before, Product after, StockMovementLog.Kind kind) {
+        Product product = after != null ? after : before;
+        int quantityDelta = (after != null ? after.getQuantity() : 0) - (before != null ? before.getQuantity() : 0);
+        boolean priceChanged = before == null || after == null || before.getPrice() != after.getPrice();
+        appendMovement(product, kind, quantityDelta, priceChanged);
+    }
+    
+    private void appendMovement(Product product, StockMovementLog.Kind kind, int quantityDelta,
+                                boolean priceChanged) {
+        StockMovementLog log = movementLog;
+        if (log == null || (quantityDelta == 0 && !priceChanged)) {
+            return;
+        }
+        try {
+            log.append(System.currentTimeMillis(), product.getId(), categoryOf(product), kind,
+                quantityDelta, product.getPrice());
+        } catch (DataFileException e) {
+            System.err.println("Error recording stock movement: " + e.getMessage());
+        }
+    }
+    
+    // Products are changed copy-on-write: a product handed out earlier, to a reader or in a
+    // mutation, never changes under it
+    private static Product withStock(Product product, int quantity, double price) {
+        Product updated = copyOf(product);
+        updated.setQuantity(quantity);
+        updated.setPrice(price);
+        return updated;
+    }
+    
+    // Newest version of a product within a batch that is being built
+    private Product latestVersion(Map<Integer, Product> latest, int id) {
+        Product product = latest.get(id);
+        return product != null ? product : findById(id);
+    }
+    
+    // Save the catalog with the batch's newest versions in place and only then index them,
+    // advance the offset and build the UPDATE mutations, in batch order. The callers moved
+    // the live counters while checking the batch; if the save fails that is undone and
+    // memory and the offset stay untouched. Caller holds the write lock.
+    private List<Mutation> commitChanges(List<Change> changes, Map<Integer, Product> latest, long now)
+            throws DataFileException {
+        List<Mutation> applied = new ArrayList<>(changes.size());
+        if (changes.isEmpty()) {
+            return applied;
+        }
+        // One pass over the list instead of a linear search per product
+        List<Product> next = new ArrayList<>(products);
+        int remaining = latest.size();
+        for (int i = 0; i < next.size() && remaining > 0; i++) {
+            Product updated = latest.get(next.get(i).getId());
+            if (updated != null) {
+                next.set(i, updated);
+                remaining--;
+            }
+        }
+        try {
+            writeSnapshot(next);
+        } catch (DataFileException e) {
+            undoCounters(changes);
+            throw e;
+        }
+        
+        products = next;
+        for (Change change : changes) {
+            Product before = change.before;
+            Product after = change.after;
+            int quantityDelta = after.getQuantity() - before.getQuantity();
+            if (locationStock.change(after.getId(), quantityDelta, after.getPrice())) {
+                locationsChanged();
+            }
+            productsById.put(after.getId(), after);
+            aggregates.replace(before, after);
+            trackStock(after);
+            appendMovement(after, change.kind, quantityDelta, after.getPrice() != before.getPrice());
+            mutationOffset++;
+            applied.add(new Mutation(mutationOffset, now, Mutation.Op.UPDATE, after.getId(), after));
+        }
+        return applied;
+    }
+    
+    // Fresh copy of a product for copy-on-write changes
+    private static Product copyOf(Product product) {
+        Product copy;
+        if (product instanceof ComputerPart) {
+            copy = new ComputerPart(product.getId(), product.getName(),
+                ((ComputerPart) product).getCategory(), product.getPrice(), product.getQuantity());
+        } else {
+            copy = new Accessory(product.getId(), product.getName(),
+                ((Accessory) product).getBrand(), product.getPrice(), product.getQuantity());
+        }
+        copy.setReorderPoint(product.getReorderPoint());
+        return copy;
+    }
+    
+    private int reorderPointOf(Product product) {
+        if (product.hasReorderPoint()) {
+            return product.getReorderPoint();
+        }
+        return defaultReorderPoints.getOrDefault(categoryOf(product), DEFAULT_REORDER_POINT);
+    }
+    
+    // Category for computer parts, brand for accessories
+    private static String categoryOf(Product product) {
+        if (product instanceof ComputerPart) {
+            return ((ComputerPart) product).getCategory();
+        } else if (product instanceof Accessory) {
+            return ((Accessory) product).getBrand();
+        }
+        return "";
+    }
 }
-
@@ -0,0 +1,18 @@
+package service;
+
+import model.Product;
+
+import java.util.List;
+
+/**
+ * Random access to a catalog by row position, for views that only need a window of rows
+ * Demonstrates: Interfaces, Abstraction
+ */
+public interface ProductSource {
+    
+    // Number of rows currently in the catalog
+    int getProductCount();
+    
+    // Up to 'count' products starting at row 'from' (shorter at the end of the catalog)
+    List<Product> getProductsInRange(int from, int count);
+}
@@ -0,0 +1,27 @@
+package service;
+
+import exception.DataFileException;
+import exception.InvalidProductException;
+import model.Product;
+
+/**
+ * A catalog that can be browsed by row position and edited by product ID
+ * Demonstrates: Interfaces, Abstraction
+ *
+ * Implemented by the in-memory ProductManager and the disk-backed DiskCatalog,
+ * so the table and the product form work the same against either.
+ */
+public interface ProductStore extends ProductSource {
+    
+    // The product with the given ID, or null if there is none
+    Product getProductById(int id);
+    
+    // An ID that no product uses yet
+    int getNextId();
+    
+    void addProduct(Product product) throws InvalidProductException, DataFileException;
+    
+    void updateProduct(int id, Product updatedProduct) throws InvalidProductException, DataFileException;
+    
+    void deleteProduct(int id) throws DataFileException, InvalidProductException;
+}
@@ -0,0 +1,87 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Products ordered by stock margin (quantity minus reorder point)
+ * Demonstrates: Balanced search trees, Incremental indexing
+ * 
+ * Updating one product is O(log n) and listing the k products below their reorder
+ * point is O(log n + k), because they are exactly the entries with a negative margin
+ * at the head of the tree.
+ */
+class ReorderIndex {
+    
+    // One entry per product; immutable so it can never move inside the tree
+    private static final class Entry implements Comparable<Entry> {
+        final int productId;
+        final long margin;
+        
+        Entry(int productId, long margin) {
+            this.productId = productId;
+            this.margin = margin;
+        }
+        
+        boolean isLow() {
+            return margin < 0;
+        }
+        
+        @Override
+        public int compareTo(Entry other) {
+            int byMargin = Long.compare(margin, other.margin);
+            return byMargin != 0 ? byMargin : Integer.compare(productId, other.productId);
+        }
+    }
+    
+    private static final Entry FIRST_NOT_LOW = new Entry(Integer.MIN_VALUE, 0);
+    
+    private final TreeSet<Entry> byMargin = new TreeSet<>();
+    private final Map<Integer, Entry> byId = new HashMap<>();
+    
+    // Insert or move a product; returns the resulting alert kind, or null if it did not cross
+    StockAlert.Kind update(int productId, int quantity, int reorderPoint) {
+        Entry entry = new Entry(productId, (long) quantity - reorderPoint);
+        Entry old = byId.put(productId, entry);
+        if (old != null) {
+            byMargin.remove(old);
+        }
+        byMargin.add(entry);
+        
+        boolean wasLow = old != null && old.isLow();
+        if (entry.isLow() && !wasLow) {
+            return StockAlert.Kind.LOW_STOCK;
+        }
+        if (!entry.isLow() && wasLow) {
+            return StockAlert.Kind.RESTOCKED;
+        }
+        return null;
+    }
+    
+    // Drop a product; returns true if it was below its reorder point
+    boolean remove(int productId) {
+        Entry old = byId.remove(productId);
+        if (old == null) {
+            return false;
+        }
+        byMargin.remove(old);
+        return old.isLow();
+    }
+    
+    void clear() {
+        byMargin.clear();
+        byId.clear();
+    }
+    
+    // Ids of products below their reorder point, most urgent first
+    List<Integer> lowStockIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (Entry entry : byMargin.headSet(FIRST_NOT_LOW)) {
+            ids.add(entry.productId);
+        }
+        return ids;
+    }
+}
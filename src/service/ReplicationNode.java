@@ -0,0 +1,88 @@
+package service;
+
+import model.ComputerPart;
+import model.Product;
+
+import java.util.List;
+
+/**
+ * Headless launcher for running replication across several JVMs on one machine
+ * 
+ * Usage:
+ *   java -cp target/classes service.ReplicationNode primary &lt;dataFile&gt; &lt;port&gt; [updatesPerSecond]
+ *   java -cp target/classes service.ReplicationNode replica &lt;dataFile&gt; &lt;host&gt; &lt;port&gt;
+ * 
+ * A primary given updatesPerSecond generates a steady stream of price updates so
+ * replication lag and throughput can be observed; replicas print both once a second.
+ */
+public class ReplicationNode {
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && "primary".equals(args[0])) {
+            runPrimary(args[1], Integer.parseInt(args[2]), args.length > 3 ? Integer.parseInt(args[3]) : 0);
+        } else if (args.length == 4 && "replica".equals(args[0])) {
+            runReplica(args[1], args[2], Integer.parseInt(args[3]));
+        } else {
+            System.err.println("Usage: ReplicationNode primary <dataFile> <port> [updatesPerSecond]");
+            System.err.println("       ReplicationNode replica <dataFile> <host> <port>");
+            System.exit(1);
+        }
+    }
+    
+    private static void runPrimary(String dataFile, int port, int updatesPerSecond) throws Exception {
+        ProductManager manager = new ProductManager(dataFile);
+        try (ReplicationPrimary primary = new ReplicationPrimary(manager, port)) {
+            System.out.println("Primary serving " + dataFile + " on port " + primary.getPort());
+            if (updatesPerSecond <= 0) {
+                Thread.currentThread().join();
+            }
+            
+            if (manager.getProductById(1) == null) {
+                manager.addProduct(new ComputerPart(1, "Replication Probe", "Test", 1.0, 1));
+            }
+            long intervalNanos = 1_000_000_000L / updatesPerSecond;
+            long next = System.nanoTime();
+            long reportAt = System.currentTimeMillis() + 1000;
+            long sent = 0;
+            while (true) {
+                Product probe = manager.getProductById(1);
+                manager.updateProduct(1, new ComputerPart(1, probe.getName(), "Test",
+                        probe.getPrice() + 0.01, probe.getQuantity()));
+                sent++;
+                if (System.currentTimeMillis() >= reportAt) {
+                    System.out.println("offset=" + primary.getLogEndOffset() + " updates/s=" + sent
+                            + " replicas=" + primary.getReplicaCount());
+                    sent = 0;
+                    reportAt += 1000;
+                }
+                next += intervalNanos;
+                long sleepNanos = next - System.nanoTime();
+                if (sleepNanos > 0) {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                }
+            }
+        }
+    }
+    
+    private static void runReplica(String dataFile, String host, int port) throws Exception {
+        ProductManager manager = new ProductManager(dataFile);
+        try (ReplicationReplica replica = new ReplicationReplica(manager, host, port)) {
+            replica.start();
+            long lastApplied = 0;
+            long lastBatches = 0;
+            while (true) {
+                Thread.sleep(1000);
+                long applied = replica.getAppliedMutations();
+                long batches = replica.getAppliedBatches();
+                List<Product> products = manager.getAllProducts();
+                System.out.println("offset=" + replica.getAppliedOffset()
+                        + " applied/s=" + (applied - lastApplied)
+                        + " batches/s=" + (batches - lastBatches)
+                        + " lagMs=" + replica.getLastLagMillis()
+                        + " products=" + products.size());
+                lastApplied = applied;
+                lastBatches = batches;
+            }
+        }
+    }
+}
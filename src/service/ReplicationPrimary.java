@@ -0,0 +1,218 @@
+package service;
+
+import model.Product;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the ordered mutation log of a primary ProductManager to replicas over TCP
+ * Demonstrates: Networking, Multithreading, Producer/Consumer with wait/notify
+ * 
+ * Protocol (one record per line, UTF-8):
+ *   replica -> primary   SYNC <session> <offset>
+ *   primary -> replica   SNAPSHOT <session> <offset> <count>, followed by count product CSV lines
+ *   primary -> replica   M <mutation line>   (see Mutation.toLine())
+ * 
+ * A replica that reconnects to the same session with an offset still held in the
+ * in-memory log only receives the missing tail; otherwise it is sent a snapshot first.
+ */
+public class ReplicationPrimary implements MutationListener, Closeable {
+    private static final int DEFAULT_LOG_CAPACITY = 100_000;
+    private static final int MAX_BATCH = 512;
+    
+    private final ProductManager productManager;
+    private final ServerSocket serverSocket;
+    private final String session;
+    
+    // Ring buffer of the most recent mutations, indexed by offset
+    private final Mutation[] log;
+    private long baseOffset;
+    private long endOffset;
+    
+    private final List<Socket> replicas = new ArrayList<>();
+    private volatile boolean closed;
+    
+    public ReplicationPrimary(ProductManager productManager, int port) throws IOException {
+        this(productManager, port, DEFAULT_LOG_CAPACITY);
+    }
+    
+    public ReplicationPrimary(ProductManager productManager, int port, int logCapacity) throws IOException {
+        this.productManager = productManager;
+        this.log = new Mutation[logCapacity];
+        this.session = Long.toHexString(System.nanoTime() ^ System.currentTimeMillis());
+        this.serverSocket = new ServerSocket(port);
+        
+        synchronized (this) {
+            baseOffset = productManager.getMutationOffset();
+            endOffset = baseOffset;
+        }
+        productManager.addMutationListener(this);
+        
+        Thread acceptor = new Thread(this::acceptLoop, "replication-accept-" + port);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+    
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    public String getSession() {
+        return session;
+    }
+    
+    // Offset of the newest mutation held in the log
+    public synchronized long getLogEndOffset() {
+        return endOffset;
+    }
+    
+    public synchronized int getReplicaCount() {
+        return replicas.size();
+    }
+    
+    // Called by ProductManager under its write lock, so entries arrive in offset order
+    @Override
+    public synchronized void onMutations(List<Mutation> batch) {
+        for (Mutation mutation : batch) {
+            if (mutation.getOffset() != endOffset + 1) {
+                // Never serve across a gap: restart the log here and let
+                // replicas that are further behind resync from a snapshot
+                baseOffset = mutation.getOffset() - 1;
+            }
+            log[(int) (mutation.getOffset() % log.length)] = mutation;
+            endOffset = mutation.getOffset();
+        }
+        notifyAll();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        productManager.removeMutationListener(this);
+        serverSocket.close();
+        synchronized (this) {
+            for (Socket socket : replicas) {
+                socket.close();
+            }
+            replicas.clear();
+            notifyAll();
+        }
+    }
+    
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                synchronized (this) {
+                    replicas.add(socket);
+                }
+                Thread sender = new Thread(() -> serve(socket), "replication-send-" + socket.getPort());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Replication accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    // Per-replica sender: handshake, optional snapshot, then tail the log forever
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(
+                 new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(
+                 new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            
+            s.setTcpNoDelay(true);
+            String[] hello = readHello(in.readLine());
+            long sent = Long.parseLong(hello[2]);
+            
+            if (!session.equals(hello[1]) || !isInLog(sent)) {
+                sent = sendSnapshot(out);
+            }
+            
+            List<Mutation> batch = new ArrayList<>(MAX_BATCH);
+            while (!closed) {
+                batch.clear();
+                if (!awaitEntries(sent, batch)) {
+                    // Fell behind the ring buffer; start over from a fresh snapshot
+                    sent = sendSnapshot(out);
+                    continue;
+                }
+                if (batch.isEmpty()) {
+                    break;  // Closed while waiting
+                }
+                for (Mutation mutation : batch) {
+                    out.write("M ");
+                    out.write(mutation.toLine());
+                    out.newLine();
+                }
+                out.flush();
+                sent = batch.get(batch.size() - 1).getOffset();
+            }
+        } catch (SocketException e) {
+            // Replica went away or primary closed; nothing to report
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            if (!closed) {
+                System.err.println("Replication to " + socket.getRemoteSocketAddress() + " failed: " + e.getMessage());
+            }
+        } finally {
+            synchronized (this) {
+                replicas.remove(socket);
+            }
+        }
+    }
+    
+    private String[] readHello(String line) throws IOException {
+        String[] parts = line == null ? new String[0] : line.trim().split(" ");
+        if (parts.length != 3 || !"SYNC".equals(parts[0])) {
+            throw new IOException("Invalid replica handshake: " + line);
+        }
+        return parts;
+    }
+    
+    private long sendSnapshot(BufferedWriter out) throws IOException {
+        List<String> rows = new ArrayList<>();
+        long offset = productManager.readSnapshot(product -> rows.add(product.toCSV()));
+        out.write("SNAPSHOT " + session + " " + offset + " " + rows.size());
+        out.newLine();
+        for (String row : rows) {
+            out.write(row);
+            out.newLine();
+        }
+        out.flush();
+        return offset;
+    }
+    
+    // True if every mutation after the offset is still available from the ring buffer
+    private synchronized boolean isInLog(long offset) {
+        long oldest = Math.max(baseOffset, endOffset - log.length);
+        return offset >= oldest && offset <= endOffset;
+    }
+    
+    // Block until mutations after 'sent' exist, then copy up to MAX_BATCH of them
+    private synchronized boolean awaitEntries(long sent, List<Mutation> batch) throws InterruptedException {
+        while (endOffset <= sent && !closed) {
+            wait();
+        }
+        if (closed) {
+            return true;
+        }
+        if (!isInLog(sent)) {
+            return false;
+        }
+        long last = Math.min(endOffset, sent + MAX_BATCH);
+        for (long offset = sent + 1; offset <= last; offset++) {
+            batch.add(log[(int) (offset % log.length)]);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+package service;
+
+import model.Product;
+import exception.DataFileException;
+import exception.InvalidProductException;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follows a ReplicationPrimary and applies its mutation log to a local ProductManager
+ * Demonstrates: Networking, Multithreading, Batching
+ * 
+ * Mutations are applied in batches (everything already buffered on the socket, up to
+ * MAX_BATCH) so each batch costs one lock acquisition and one file write. Reads keep
+ * going to the local ProductManager and never touch the network.
+ */
+public class ReplicationReplica implements Closeable {
+    private static final int MAX_BATCH = 1024;
+    private static final long RECONNECT_DELAY_MS = 1000;
+    
+    private final ProductManager productManager;
+    private final String host;
+    private final int port;
+    
+    private volatile String session = "-";
+    private volatile boolean closed;
+    private volatile Socket socket;
+    
+    // Replication statistics (lag is measured against the primary's commit timestamp)
+    private volatile long appliedMutations;
+    private volatile long appliedBatches;
+    private volatile long lastLagMillis;
+    
+    // The local store becomes read-only: local edits would take offsets from the primary's log
+    public ReplicationReplica(ProductManager productManager, String host, int port) {
+        this.productManager = productManager;
+        this.productManager.setReadOnly(true);
+        this.host = host;
+        this.port = port;
+    }
+    
+    // Start following the primary on a background daemon thread
+    public void start() {
+        Thread follower = new Thread(this::followLoop, "replication-follow-" + host + ":" + port);
+        follower.setDaemon(true);
+        follower.start();
+    }
+    
+    public long getAppliedOffset() {
+        return productManager.getMutationOffset();
+    }
+    
+    public long getAppliedMutations() {
+        return appliedMutations;
+    }
+    
+    public long getAppliedBatches() {
+        return appliedBatches;
+    }
+    
+    // Milliseconds between the primary committing the last applied mutation and this replica applying it
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+    
+    // Reconnect forever; each connection resumes from the local offset
+    private void followLoop() {
+        while (!closed) {
+            try (Socket s = new Socket(host, port)) {
+                socket = s;
+                s.setTcpNoDelay(true);
+                follow(s);
+            } catch (IOException | InvalidProductException | DataFileException | RuntimeException e) {
+                if (!closed) {
+                    System.err.println("Replication from " + host + ":" + port + " interrupted: " + e.getMessage());
+                }
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void follow(Socket s) throws IOException, InvalidProductException, DataFileException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+        Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8);
+        out.write("SYNC " + session + " " + productManager.getMutationOffset() + "\n");
+        out.flush();
+        
+        List<Mutation> batch = new ArrayList<>(MAX_BATCH);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("SNAPSHOT ")) {
+                installSnapshot(line, in);
+                continue;
+            }
+            batch.add(parseMutation(line));
+            
+            // Drain whatever has already arrived so it is applied as one batch
+            while (batch.size() < MAX_BATCH && in.ready()) {
+                String next = in.readLine();
+                if (next == null || next.startsWith("SNAPSHOT ")) {
+                    applyBatch(batch);
+                    if (next == null) {
+                        return;
+                    }
+                    installSnapshot(next, in);
+                    continue;
+                }
+                batch.add(parseMutation(next));
+            }
+            applyBatch(batch);
+        }
+    }
+    
+    private Mutation parseMutation(String line) throws InvalidProductException {
+        if (!line.startsWith("M ")) {
+            throw new InvalidProductException("Unexpected replication record: " + line);
+        }
+        return Mutation.fromLine(line.substring(2));
+    }
+    
+    private void applyBatch(List<Mutation> batch) throws DataFileException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        productManager.applyMutations(batch);
+        lastLagMillis = System.currentTimeMillis() - batch.get(batch.size() - 1).getTimestamp();
+        appliedMutations += batch.size();
+        appliedBatches++;
+        batch.clear();
+    }
+    
+    private void installSnapshot(String header, BufferedReader in)
+            throws IOException, InvalidProductException, DataFileException {
+        String[] parts = header.split(" ");
+        if (parts.length != 4) {
+            throw new InvalidProductException("Invalid snapshot header: " + header);
+        }
+        long offset = Long.parseLong(parts[2]);
+        int count = Integer.parseInt(parts[3]);
+        List<Product> snapshot = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String row = in.readLine();
+            if (row == null) {
+                throw new EOFException("Snapshot truncated after " + i + " of " + count + " rows");
+            }
+            snapshot.add(ProductManager.createProductFromCSV(row));
+        }
+        productManager.installSnapshot(snapshot, offset);
+        session = parts[1];
+    }
+}
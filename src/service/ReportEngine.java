@@ -0,0 +1,198 @@
+package service;
+
+import model.Accessory;
+import model.ComputerPart;
+import model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel inventory analytics over a snapshot of the catalog
+ * Demonstrates: Fork/Join parallelism, Divide and Conquer, Polymorphism
+ * 
+ * The snapshot array is split recursively until slices are small enough to scan
+ * sequentially; each slice produces a partial result (group subtotals plus a bounded
+ * top-N heap) and partials are merged pairwise on the way back up.
+ */
+public class ReportEngine {
+    
+    public enum GroupBy {
+        TYPE("Type"),
+        CATEGORY("Category (Computer Parts)"),
+        BRAND("Brand (Accessories)");
+        
+        private final String label;
+        
+        GroupBy(String label) {
+            this.label = label;
+        }
+        
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+    
+    private static final double[] DEFAULT_PERCENTILES = {50, 90, 95, 99};
+    
+    private static final int SEQUENTIAL_THRESHOLD = 8_192;
+    private static final Comparator<Product> BY_VALUE =
+        Comparator.comparingDouble(Product::getTotalValue).thenComparingInt(Product::getId);
+    
+    private final ForkJoinPool pool;
+    
+    public ReportEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    public ReportEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    // Build a report with the default price percentiles (p50, p90, p95, p99)
+    public InventoryReport run(Product[] snapshot, GroupBy groupBy, int topN) {
+        return run(snapshot, groupBy, topN, DEFAULT_PERCENTILES);
+    }
+    
+    // Build a report from a snapshot; the array is read but never modified
+    public InventoryReport run(Product[] snapshot, GroupBy groupBy, int topN, double[] percentiles) {
+        long start = System.nanoTime();
+        
+        Partial partial = pool.invoke(new ScanTask(snapshot, 0, snapshot.length, groupBy, topN));
+        
+        List<InventoryReport.Group> groups = new ArrayList<>(partial.groups.size());
+        for (Map.Entry<String, Subtotal> entry : partial.groups.entrySet()) {
+            Subtotal subtotal = entry.getValue();
+            groups.add(new InventoryReport.Group(entry.getKey(), subtotal.count, subtotal.units, subtotal.value));
+        }
+        groups.sort(Comparator.comparingDouble(InventoryReport.Group::getValue).reversed());
+        
+        List<Product> top = new ArrayList<>(partial.top);
+        top.sort(BY_VALUE.reversed());
+        
+        double[] priceAtPercentile = pricePercentiles(snapshot, percentiles);
+        
+        return new InventoryReport(groupBy, snapshot.length, groups, top, percentiles,
+            priceAtPercentile, System.nanoTime() - start);
+    }
+    
+    // Nearest-rank percentiles over a parallel-sorted copy of the prices
+    private double[] pricePercentiles(Product[] snapshot, double[] percentiles) {
+        double[] result = new double[percentiles.length];
+        if (snapshot.length == 0) {
+            return result;
+        }
+        double[] prices = new double[snapshot.length];
+        Arrays.parallelSetAll(prices, i -> snapshot[i].getPrice());
+        Arrays.parallelSort(prices);
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100.0 * prices.length);
+            result[i] = prices[Math.min(prices.length - 1, Math.max(0, rank - 1))];
+        }
+        return result;
+    }
+    
+    private static String keyOf(Product product, GroupBy groupBy) {
+        switch (groupBy) {
+            case TYPE:
+                return product.getType();
+            case CATEGORY:
+                return product instanceof ComputerPart ? ((ComputerPart) product).getCategory() : null;
+            case BRAND:
+                return product instanceof Accessory ? ((Accessory) product).getBrand() : null;
+            default:
+                return null;
+        }
+    }
+    
+    // Running subtotal for one key inside a Partial
+    private static class Subtotal {
+        int count;
+        long units;
+        double value;
+    }
+    
+    // Per-slice result: subtotals per key plus a min-heap holding the top N by value
+    private static class Partial {
+        final Map<String, Subtotal> groups = new HashMap<>();
+        final PriorityQueue<Product> top = new PriorityQueue<>(BY_VALUE);
+        
+        void offer(Product product, int topN) {
+            if (topN <= 0) {
+                return;
+            }
+            if (top.size() < topN) {
+                top.add(product);
+            } else if (BY_VALUE.compare(product, top.peek()) > 0) {
+                top.poll();
+                top.add(product);
+            }
+        }
+        
+        void add(String key, int count, long units, double value) {
+            Subtotal subtotal = groups.computeIfAbsent(key, k -> new Subtotal());
+            subtotal.count += count;
+            subtotal.units += units;
+            subtotal.value += value;
+        }
+        
+        Partial merge(Partial other, int topN) {
+            for (Map.Entry<String, Subtotal> entry : other.groups.entrySet()) {
+                Subtotal subtotal = entry.getValue();
+                add(entry.getKey(), subtotal.count, subtotal.units, subtotal.value);
+            }
+            for (Product product : other.top) {
+                offer(product, topN);
+            }
+            return this;
+        }
+    }
+    
+    private static class ScanTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+        
+        private final Product[] snapshot;
+        private final int from;
+        private final int to;
+        private final GroupBy groupBy;
+        private final int topN;
+        
+        ScanTask(Product[] snapshot, int from, int to, GroupBy groupBy, int topN) {
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+            this.groupBy = groupBy;
+            this.topN = topN;
+        }
+        
+        @Override
+        protected Partial compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                Partial partial = new Partial();
+                for (int i = from; i < to; i++) {
+                    Product product = snapshot[i];
+                    String key = keyOf(product, groupBy);
+                    if (key != null) {
+                        partial.add(key, 1, product.getQuantity(), product.getTotalValue());
+                    }
+                    partial.offer(product, topN);
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(snapshot, from, mid, groupBy, topN);
+            ScanTask right = new ScanTask(snapshot, mid, to, groupBy, topN);
+            left.fork();
+            Partial rightResult = right.compute();
+            return left.join().merge(rightResult, topN);
+        }
+    }
+}
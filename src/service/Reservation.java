@@ -0,0 +1,51 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Units of one product held for a checkout until ProductManager commits or releases them
+ * Demonstrates: Encapsulation, One-shot state transitions
+ */
+public final class Reservation {
+    private final StockCounter counter;
+    private final int quantity;
+    private final long createdAt;
+    private final AtomicBoolean settled = new AtomicBoolean();
+    
+    Reservation(StockCounter counter, int quantity) {
+        this.counter = counter;
+        this.quantity = quantity;
+        this.createdAt = System.currentTimeMillis();
+    }
+    
+    public int getProductId() {
+        return counter.getProductId();
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public long getCreatedAt() {
+        return createdAt;
+    }
+    
+    // True once committed or released
+    public boolean isSettled() {
+        return settled.get();
+    }
+    
+    StockCounter getCounter() {
+        return counter;
+    }
+    
+    // True only for the first call, so a reservation is committed or released exactly once
+    boolean settle() {
+        return settled.compareAndSet(false, true);
+    }
+    
+    @Override
+    public String toString() {
+        return "Reservation of " + quantity + " x product " + getProductId() + (isSettled() ? " (settled)" : "");
+    }
+}
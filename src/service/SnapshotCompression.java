@@ -0,0 +1,287 @@
+package service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block-compressed snapshot format for the data file
+ * Demonstrates: Streaming compression, Parallel pipelines with bounded read-ahead
+ *
+ * Layout: the 4-byte magic "PMZ\1", then blocks of up to 256 KB of snapshot text, each
+ * stored as [raw length][compressed length][CRC-32 of the raw bytes] followed by its raw
+ * deflate data. Every block is compressed on its own, so blocks are deflated in parallel
+ * while saving and inflated in parallel while loading; the streams keep at most a few
+ * blocks per core in flight, so memory stays bounded however large the catalog is.
+ * Blocks split the text at arbitrary byte positions; readers just see the concatenation.
+ */
+class SnapshotCompression {
+    private static final byte[] MAGIC = {'P', 'M', 'Z', 1};
+    private static final int BLOCK_SIZE = 256 * 1024;
+    private static final int HEADER_SIZE = 12;
+    // Deflate never grows a block past this, so a larger length means a corrupt header
+    private static final int MAX_COMPRESSED_SIZE = BLOCK_SIZE + BLOCK_SIZE / 8 + 64;
+    private static final int MAX_IN_FLIGHT = 2 * ForkJoinPool.getCommonPoolParallelism() + 2;
+    
+    private SnapshotCompression() {
+    }
+    
+    // True if the file starts with the block format's magic (plain snapshots start with a type name)
+    static boolean isCompressed(File file) throws IOException {
+        byte[] head = new byte[MAGIC.length];
+        try (InputStream in = new FileInputStream(file)) {
+            return in.readNBytes(head, 0, head.length) == head.length && Arrays.equals(head, MAGIC);
+        }
+    }
+    
+    /**
+     * Splits everything written into blocks and deflates them on the common pool,
+     * writing finished blocks in order.
+     */
+    static class BlockOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final int level;
+        private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        private byte[] block = new byte[BLOCK_SIZE];
+        private int count;
+        
+        BlockOutputStream(OutputStream out, int level) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.level = level;
+            this.out.write(MAGIC);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            block[count++] = (byte) b;
+            if (count == block.length) {
+                submitBlock();
+            }
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                int n = Math.min(length, block.length - count);
+                System.arraycopy(bytes, offset, block, count, n);
+                count += n;
+                offset += n;
+                length -= n;
+                if (count == block.length) {
+                    submitBlock();
+                }
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                if (count > 0) {
+                    submitBlock();
+                }
+                while (!pending.isEmpty()) {
+                    writeNextBlock();
+                }
+            } finally {
+                out.close();
+            }
+        }
+        
+        private void submitBlock() throws IOException {
+            byte[] raw = block;
+            int length = count;
+            pending.add(ForkJoinPool.commonPool().submit(() -> deflate(raw, length, level)));
+            block = new byte[BLOCK_SIZE];
+            count = 0;
+            while (pending.size() > MAX_IN_FLIGHT) {
+                writeNextBlock();
+            }
+        }
+        
+        private void writeNextBlock() throws IOException {
+            out.write(await(pending.poll()));
+        }
+    }
+    
+    /**
+     * Reads blocks ahead of the consumer and inflates them on the common pool,
+     * handing back their bytes in order.
+     */
+    static class BlockInputStream extends InputStream {
+        private final DataInputStream in;
+        private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        private boolean endOfFile;
+        private byte[] current = new byte[0];
+        private int position;
+        
+        BlockInputStream(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            byte[] head = new byte[MAGIC.length];
+            this.in.readFully(head);
+            if (!Arrays.equals(head, MAGIC)) {
+                throw new IOException("Not a compressed snapshot");
+            }
+            readAhead();
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (position == current.length && !nextBlock()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position == current.length && !nextBlock()) {
+                return -1;
+            }
+            int n = Math.min(length, current.length - position);
+            System.arraycopy(current, position, bytes, offset, n);
+            position += n;
+            return n;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            pending.forEach(future -> future.cancel(false));
+            in.close();
+        }
+        
+        private boolean nextBlock() throws IOException {
+            while (position == current.length) {
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                current = await(pending.poll());
+                position = 0;
+                readAhead();
+            }
+            return true;
+        }
+        
+        // The file may only end between blocks; a partial header or block means it was cut short
+        private void readAhead() throws IOException {
+            byte[] header = new byte[HEADER_SIZE];
+            while (!endOfFile && pending.size() < MAX_IN_FLIGHT) {
+                int headerLength = in.readNBytes(header, 0, HEADER_SIZE);
+                if (headerLength == 0) {
+                    endOfFile = true;
+                    return;
+                }
+                if (headerLength < HEADER_SIZE) {
+                    throw new IOException("Truncated snapshot block header");
+                }
+                int rawLength = readInt(header, 0);
+                int compressedLength = readInt(header, 4);
+                int checksum = readInt(header, 8);
+                if (rawLength < 0 || rawLength > BLOCK_SIZE
+                        || compressedLength < 0 || compressedLength > MAX_COMPRESSED_SIZE) {
+                    throw new IOException("Corrupt snapshot block header");
+                }
+                byte[] compressed = new byte[compressedLength];
+                try {
+                    in.readFully(compressed);
+                } catch (EOFException e) {
+                    throw new IOException("Truncated snapshot block", e);
+                }
+                pending.add(ForkJoinPool.commonPool().submit(() -> inflate(compressed, rawLength, checksum)));
+            }
+        }
+    }
+    
+    // Block header and deflate output for the first length bytes of raw
+    private static byte[] deflate(byte[] raw, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            byte[] output = new byte[HEADER_SIZE + length + length / 8 + 64];
+            int size = HEADER_SIZE;
+            while (!deflater.finished()) {
+                if (size == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                size += deflater.deflate(output, size, output.length - size);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(raw, 0, length);
+            writeInt(output, 0, length);
+            writeInt(output, 4, size - HEADER_SIZE);
+            writeInt(output, 8, (int) crc.getValue());
+            return Arrays.copyOf(output, size);
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] inflate(byte[] compressed, int rawLength, int checksum) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int size = 0;
+            while (size < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, size, rawLength - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += n;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(raw, 0, size);
+            if (size != rawLength || (int) crc.getValue() != checksum) {
+                throw new IOException("Corrupt snapshot block");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt snapshot block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+    
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+            | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+    
+    private static byte[] await(Future<byte[]> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing snapshot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Snapshot block failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package service;
+
+/**
+ * Event fired when a product's quantity crosses its reorder point
+ * Demonstrates: Event objects, Immutability
+ */
+public final class StockAlert {
+    
+    public enum Kind {
+        LOW_STOCK,   // quantity dropped below the reorder point
+        RESTOCKED,   // quantity is back at or above the reorder point
+        REMOVED      // a low-stock product was deleted
+    }
+    
+    private final Kind kind;
+    private final int productId;
+    private final String productName;
+    private final int quantity;
+    private final int reorderPoint;
+    
+    public StockAlert(Kind kind, int productId, String productName, int quantity, int reorderPoint) {
+        this.kind = kind;
+        this.productId = productId;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.reorderPoint = reorderPoint;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    public int getProductId() {
+        return productId;
+    }
+    
+    public String getProductName() {
+        return productName;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public int getReorderPoint() {
+        return reorderPoint;
+    }
+    
+    @Override
+    public String toString() {
+        return "StockAlert{" + kind + ", id=" + productId + ", name='" + productName
+               + "', quantity=" + quantity + ", reorderPoint=" + reorderPoint + "}";
+    }
+}
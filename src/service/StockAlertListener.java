@@ -0,0 +1,11 @@
+package service;
+
+/**
+ * Callback for low-stock alerts raised by ProductManager
+ * Alerts are delivered while the manager holds its write lock, in the order the
+ * quantity changes were committed; implementations must not call back into the manager.
+ */
+public interface StockAlertListener {
+    
+    void onStockAlert(StockAlert alert);
+}
@@ -0,0 +1,159 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live stock of one product for the checkout path: units on hand and units reserved
+ * Demonstrates: Lock-free compare-and-set loops, Packed atomic state
+ *
+ * Both numbers share one AtomicLong (on hand in the high 32 bits, reserved in the low 32),
+ * so "on hand - reserved >= n" is checked and changed in a single compare-and-set and no
+ * interleaving of reserve, commit, release and sell can take stock below zero. The Product
+ * in the catalog keeps the quantity last saved; ProductManager.flushSales folds the
+ * difference back into it in batches.
+ */
+final class StockCounter {
+    private static final long RETIRED = -1L;
+    
+    private final int productId;
+    private final AtomicLong state;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    
+    StockCounter(int productId, int onHand) {
+        this.productId = productId;
+        this.state = new AtomicLong(pack(onHand, 0));
+    }
+    
+    int getProductId() {
+        return productId;
+    }
+    
+    int getOnHand() {
+        long current = state.get();
+        return current == RETIRED ? 0 : onHand(current);
+    }
+    
+    int getReserved() {
+        long current = state.get();
+        return current == RETIRED ? 0 : reserved(current);
+    }
+    
+    int getAvailable() {
+        long current = state.get();
+        return current == RETIRED ? 0 : Math.max(0, onHand(current) - reserved(current));
+    }
+    
+    boolean isRetired() {
+        return state.get() == RETIRED;
+    }
+    
+    // Move n available units to reserved; false if fewer are available
+    boolean reserve(int n) {
+        while (true) {
+            long current = state.get();
+            if (current == RETIRED || onHand(current) - reserved(current) < n) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(onHand(current), reserved(current) + n))) {
+                return true;
+            }
+        }
+    }
+    
+    // Reserved units leave the shelf. If the stock was corrected below them meanwhile
+    // the hold is dropped instead and false is returned.
+    boolean commit(int n) {
+        while (true) {
+            long current = state.get();
+            if (current == RETIRED) {
+                return false;
+            }
+            boolean covered = onHand(current) >= n;
+            long next = pack(covered ? onHand(current) - n : onHand(current), reserved(current) - n);
+            if (state.compareAndSet(current, next)) {
+                return covered;
+            }
+        }
+    }
+    
+    void release(int n) {
+        while (true) {
+            long current = state.get();
+            if (current == RETIRED || state.compareAndSet(current, pack(onHand(current), reserved(current) - n))) {
+                return;
+            }
+        }
+    }
+    
+    // Take n units that nobody has reserved; false if fewer are available
+    boolean sell(int n) {
+        while (true) {
+            long current = state.get();
+            if (current == RETIRED || onHand(current) - reserved(current) < n) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(onHand(current) - n, reserved(current)))) {
+                return true;
+            }
+        }
+    }
+    
+    // Follow a quantity change made through the catalog. Checked against the live on-hand
+    // count, which includes sales not flushed yet: false, changing nothing, if the change
+    // would take it below zero.
+    boolean adjust(int delta) {
+        while (true) {
+            long current = state.get();
+            if (current == RETIRED) {
+                return true;
+            }
+            long onHand = (long) onHand(current) + delta;
+            if (onHand < 0 || onHand > Integer.MAX_VALUE) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack((int) onHand, reserved(current)))) {
+                return true;
+            }
+        }
+    }
+    
+    // Take back an adjust whose catalog change could not be saved. Units sold in between
+    // stay sold, so on hand stops at zero.
+    void undoAdjust(int delta) {
+        while (true) {
+            long current = state.get();
+            long next = pack((int) Math.max(0, Math.min(Integer.MAX_VALUE, (long) onHand(current) - delta)),
+                reserved(current));
+            if (current == RETIRED || state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+    
+    // The product is gone: every later operation fails
+    void retire() {
+        state.set(RETIRED);
+    }
+    
+    // True only for the call that made the counter dirty, which must queue it for flushing
+    boolean markDirty() {
+        return !dirty.get() && dirty.compareAndSet(false, true);
+    }
+    
+    void clearDirty() {
+        dirty.set(false);
+    }
+    
+    private static long pack(int onHand, int reserved) {
+        return ((long) onHand << 32) | (reserved & 0xFFFFFFFFL);
+    }
+    
+    private static int onHand(long state) {
+        return (int) (state >>> 32);
+    }
+    
+    private static int reserved(long state) {
+        return (int) state;
+    }
+}
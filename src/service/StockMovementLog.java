@@ -0,0 +1,382 @@
+package service;
+
+import exception.DataFileException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only, columnar log of stock movements (quantity and price changes)
+ * Demonstrates: Memory-mapped files, Columnar storage, Delta encoding
+ * 
+ * The log is split into segment files, one per UTC day (or more if a day fills a
+ * segment). Each segment is preallocated and memory-mapped, and stores its rows as
+ * separate columns:
+ * 
+ *   header   magic, capacity, base time (start of day), row count
+ *   time     int   milliseconds since the segment's base time (delta encoded)
+ *   product  int   product id
+ *   quantity int   change in quantity (negative when stock goes out)
+ *   price    double price after the change
+ *   category int   code into the category dictionary (categories.txt)
+ *   kind     byte  what caused the movement (sale, receipt, adjustment, delete)
+ * 
+ * Segments written before the kind column existed ("SMV1") are still read; their
+ * kind is inferred from the sign of the quantity change.
+ * 
+ * An append is a handful of stores into the mapped buffer. A time-window query opens
+ * only the segments whose days overlap the window and binary-searches the time column
+ * for the first row, so it never touches unrelated days or unrelated columns.
+ */
+public class StockMovementLog implements Closeable {
+    
+    // What caused a movement; the ordinal is stored in the kind column
+    public enum Kind {
+        SALE,        // Units sold to a customer
+        RECEIPT,     // Units received into stock (new products, supplier deliveries)
+        ADJUSTMENT,  // Manual edits, stock corrections and price changes
+        DELETE;      // Product removed from the catalog
+        
+        private static final Kind[] VALUES = values();
+        
+        static Kind of(int ordinal) {
+            return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : ADJUSTMENT;
+        }
+    }
+    
+    public enum Metric {
+        UNITS_SOLD("Units Sold"),          // sum of units taken out by sales
+        UNITS_RECEIVED("Units Received"),  // sum of units put in by receipts
+        NET_CHANGE("Net Change"),          // sum of all quantity deltas
+        MOVEMENTS("Movements");            // number of recorded events
+        
+        private final String label;
+        
+        Metric(String label) {
+            this.label = label;
+        }
+        
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+    
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    
+    private static final int MAGIC = 0x534D5632;         // "SMV2"
+    private static final int LEGACY_MAGIC = 0x534D5631;  // "SMV1", no kind column
+    private static final int HEADER_SIZE = 24;
+    private static final int ROW_COUNT_OFFSET = 16;
+    private static final int BYTES_PER_ROW = 4 + 4 + 4 + 8 + 4 + 1;
+    private static final int DEFAULT_CAPACITY = 1 << 18;
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".smv";
+    private static final String CATEGORY_FILE = "categories.txt";
+    
+    // One segment file; rowCount is volatile so readers see only fully written rows
+    private static final class Segment {
+        final File file;
+        final long baseTime;
+        final int capacity;
+        final MappedByteBuffer buffer;
+        final boolean hasKind;  // False for legacy segments, which are never appended to
+        volatile int rowCount;
+        
+        Segment(File file, long baseTime, int capacity, MappedByteBuffer buffer, boolean hasKind,
+                int rowCount) {
+            this.file = file;
+            this.baseTime = baseTime;
+            this.capacity = capacity;
+            this.buffer = buffer;
+            this.hasKind = hasKind;
+            this.rowCount = rowCount;
+        }
+        
+        int timeOffset(int row) {
+            return HEADER_SIZE + row * 4;
+        }
+        
+        int productOffset(int row) {
+            return HEADER_SIZE + capacity * 4 + row * 4;
+        }
+        
+        int quantityOffset(int row) {
+            return HEADER_SIZE + capacity * 8 + row * 4;
+        }
+        
+        int priceOffset(int row) {
+            return HEADER_SIZE + capacity * 12 + row * 8;
+        }
+        
+        int categoryOffset(int row) {
+            return HEADER_SIZE + capacity * 20 + row * 4;
+        }
+        
+        int kindOffset(int row) {
+            return HEADER_SIZE + capacity * 24 + row;
+        }
+        
+        Kind kind(ByteBuffer buffer, int row, int delta) {
+            if (hasKind) {
+                return Kind.of(buffer.get(kindOffset(row)));
+            }
+            return delta < 0 ? Kind.SALE : delta > 0 ? Kind.RECEIPT : Kind.ADJUSTMENT;
+        }
+        
+        long lastTime() {
+            int rows = rowCount;
+            return rows == 0 ? baseTime : baseTime + buffer.getInt(timeOffset(rows - 1));
+        }
+    }
+    
+    private final File directory;
+    private final int capacity;
+    private final List<Segment> segments = new ArrayList<>();  // Ordered by base time
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+    private Writer categoryWriter;
+    
+    public StockMovementLog(File directory) throws DataFileException {
+        this(directory, DEFAULT_CAPACITY);
+    }
+    
+    public StockMovementLog(File directory, int segmentCapacity) throws DataFileException {
+        this.directory = directory;
+        this.capacity = segmentCapacity;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new DataFileException("Failed to create movement log directory " + directory);
+        }
+        try {
+            loadCategories();
+            openSegments();
+        } catch (IOException e) {
+            throw new DataFileException("Error opening movement log " + directory, e);
+        }
+    }
+    
+    // Record one movement; called by ProductManager under its write lock (single writer)
+    public synchronized void append(long timeMillis, int productId, String category, Kind kind,
+                                    int quantityDelta, double price) throws DataFileException {
+        try {
+            Segment segment = segmentFor(timeMillis);
+            long time = Math.max(timeMillis, segment.lastTime());  // Keep the time column sorted
+            int row = segment.rowCount;
+            MappedByteBuffer buffer = segment.buffer;
+            buffer.putInt(segment.timeOffset(row), (int) (time - segment.baseTime));
+            buffer.putInt(segment.productOffset(row), productId);
+            buffer.putInt(segment.quantityOffset(row), quantityDelta);
+            buffer.putDouble(segment.priceOffset(row), price);
+            buffer.putInt(segment.categoryOffset(row), categoryCode(category));
+            buffer.put(segment.kindOffset(row), (byte) kind.ordinal());
+            buffer.putInt(ROW_COUNT_OFFSET, row + 1);
+            segment.rowCount = row + 1;  // Publish the row to readers
+        } catch (IOException e) {
+            throw new DataFileException("Error appending to movement log", e);
+        }
+    }
+    
+    /**
+     * Aggregate movements in [fromMillis, toMillis) into buckets of bucketMillis.
+     * productId filters to one product (or -1 for all); category filters to one
+     * category or brand (or null for all).
+     */
+    public long[] aggregate(long fromMillis, long toMillis, long bucketMillis,
+                            int productId, String category, Metric metric) {
+        int buckets = (int) Math.max(0, (toMillis - fromMillis + bucketMillis - 1) / bucketMillis);
+        long[] result = new long[buckets];
+        Integer categoryCode = null;
+        if (category != null) {
+            synchronized (this) {
+                categoryCode = categoryCodes.get(categoryKey(category));
+            }
+            if (categoryCode == null) {
+                return result;  // Category never had a movement
+            }
+        }
+        
+        for (Segment segment : segmentsOverlapping(fromMillis, toMillis)) {
+            ByteBuffer buffer = segment.buffer.duplicate();
+            int rows = segment.rowCount;
+            int row = firstRowAtOrAfter(segment, buffer, rows, fromMillis);
+            for (; row < rows; row++) {
+                long time = segment.baseTime + buffer.getInt(segment.timeOffset(row));
+                if (time >= toMillis) {
+                    break;
+                }
+                if (productId >= 0 && buffer.getInt(segment.productOffset(row)) != productId) {
+                    continue;
+                }
+                if (categoryCode != null && buffer.getInt(segment.categoryOffset(row)) != categoryCode) {
+                    continue;
+                }
+                int delta = buffer.getInt(segment.quantityOffset(row));
+                int bucket = (int) ((time - fromMillis) / bucketMillis);
+                switch (metric) {
+                    case UNITS_SOLD:
+                        if (delta < 0 && segment.kind(buffer, row, delta) == Kind.SALE) {
+                            result[bucket] -= delta;
+                        }
+                        break;
+                    case UNITS_RECEIVED:
+                        if (delta > 0 && segment.kind(buffer, row, delta) == Kind.RECEIPT) {
+                            result[bucket] += delta;
+                        }
+                        break;
+                    case NET_CHANGE:
+                        result[bucket] += delta;
+                        break;
+                    case MOVEMENTS:
+                        result[bucket]++;
+                        break;
+                }
+            }
+        }
+        return result;
+    }
+    
+    // Total number of recorded movements across all segments
+    public synchronized long size() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.rowCount;
+        }
+        return total;
+    }
+    
+    // Categories (and accessory brands) that appear in the log
+    public synchronized List<String> getCategories() {
+        return new ArrayList<>(categoryNames);
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        if (categoryWriter != null) {
+            categoryWriter.close();
+        }
+    }
+    
+    private synchronized List<Segment> segmentsOverlapping(long fromMillis, long toMillis) {
+        List<Segment> overlapping = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            // A segment covers [baseTime, lastTime]; skip it without reading any rows
+            if (segment.baseTime < toMillis && segment.lastTime() >= fromMillis) {
+                overlapping.add(segment);
+            }
+        }
+        return overlapping;
+    }
+    
+    // Binary search on the sorted time column
+    private static int firstRowAtOrAfter(Segment segment, ByteBuffer buffer, int rows, long timeMillis) {
+        long target = timeMillis - segment.baseTime;
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getInt(segment.timeOffset(mid)) < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // Current segment for the given time, rolling over at day boundaries, when full or
+    // when the last segment predates the kind column
+    private Segment segmentFor(long timeMillis) throws IOException {
+        long day = Math.floorDiv(timeMillis, DAY_MILLIS) * DAY_MILLIS;
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.hasKind && last.rowCount < last.capacity && day <= last.baseTime) {
+            return last;
+        }
+        long baseTime = last != null ? Math.max(day, last.baseTime) : day;
+        File file = new File(directory, String.format("%s%d-%06d%s",
+            SEGMENT_PREFIX, baseTime, segments.size(), SEGMENT_SUFFIX));
+        Segment segment = createSegment(file, baseTime);
+        segments.add(segment);
+        return segment;
+    }
+    
+    private Segment createSegment(File file, long baseTime) throws IOException {
+        long size = HEADER_SIZE + (long) capacity * BYTES_PER_ROW;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            raf.setLength(size);  // Sparse until rows are written
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, capacity);
+            buffer.putLong(8, baseTime);
+            buffer.putInt(ROW_COUNT_OFFSET, 0);
+            return new Segment(file, baseTime, capacity, buffer, true, 0);
+        }
+    }
+    
+    private void openSegments() throws IOException {
+        File[] files = directory.listFiles((dir, name) ->
+            name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                 FileChannel channel = raf.getChannel()) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                int magic = channel.size() < HEADER_SIZE ? 0 : buffer.getInt(0);
+                if (magic != MAGIC && magic != LEGACY_MAGIC) {
+                    System.err.println("Skipping invalid movement segment " + file.getName());
+                    continue;
+                }
+                segments.add(new Segment(file, buffer.getLong(8), buffer.getInt(4), buffer,
+                    magic == MAGIC, buffer.getInt(ROW_COUNT_OFFSET)));
+            }
+        }
+        segments.sort((a, b) -> a.baseTime != b.baseTime
+            ? Long.compare(a.baseTime, b.baseTime) : a.file.getName().compareTo(b.file.getName()));
+    }
+    
+    // The dictionary is one name per line, so the in-memory key is the name as it is
+    // written there; otherwise history would split into two codes after a reopen
+    private static String categoryKey(String category) {
+        return category == null ? "" : category.replace('\n', ' ').replace('\r', ' ');
+    }
+    
+    private int categoryCode(String category) throws IOException {
+        String key = categoryKey(category);
+        Integer code = categoryCodes.get(key);
+        if (code == null) {
+            code = categoryNames.size();
+            categoryNames.add(key);
+            categoryCodes.put(key, code);
+            categoryWriter.write(key);
+            categoryWriter.write('\n');
+            categoryWriter.flush();
+        }
+        return code;
+    }
+    
+    private void loadCategories() throws IOException {
+        File file = new File(directory, CATEGORY_FILE);
+        if (file.exists()) {
+            for (String name : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                categoryCodes.putIfAbsent(name, categoryNames.size());
+                categoryNames.add(name);
+            }
+        }
+        categoryWriter = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,82 @@
+package service;
+
+import model.ProductCodec;
+import model.ValidationError;
+
+/**
+ * One record of a supplier update feed: a new price and/or a quantity change for an existing product
+ * Demonstrates: Immutability, Exception-free parsing
+ * 
+ * Wire format is one CSV line per record: id,newPrice,quantityDelta. An empty (or
+ * omitted) price keeps the current price and an empty delta keeps the quantity, e.g.
+ * "1042,19.99" reprices, "1042,,-3" sells three and "1042,21.50,+40" does both.
+ * A record that fails to parse keeps its error code and is reported, not applied.
+ */
+public final class StockUpdate {
+    private final int lineNumber;
+    private final int productId;
+    private final double price;        // NaN = unchanged
+    private final int quantityDelta;
+    private final ValidationError error;
+    
+    public StockUpdate(int lineNumber, int productId, double price, int quantityDelta) {
+        this(lineNumber, productId, price, quantityDelta, null);
+    }
+    
+    private StockUpdate(int lineNumber, int productId, double price, int quantityDelta, ValidationError error) {
+        this.lineNumber = lineNumber;
+        this.productId = productId;
+        this.price = price;
+        this.quantityDelta = quantityDelta;
+        this.error = error;
+    }
+    
+    // Parse one record with the caller's codec; never throws
+    public static StockUpdate parse(ProductCodec codec, CharSequence line, int lineNumber) {
+        ValidationError error = codec.scan(line);
+        if (error != null) {
+            return new StockUpdate(lineNumber, 0, Double.NaN, 0, error);
+        }
+        if (codec.getFieldCount() > 3) {
+            return new StockUpdate(lineNumber, 0, Double.NaN, 0, ValidationError.TOO_MANY_FIELDS);
+        }
+        if (!codec.hasField(0)) {
+            return new StockUpdate(lineNumber, 0, Double.NaN, 0, ValidationError.MISSING_FIELDS);
+        }
+        int productId = codec.parseInt(0);
+        double price = codec.hasField(1) ? codec.parseDouble(1) : Double.NaN;
+        int quantityDelta = codec.hasField(2) ? codec.parseInt(2) : 0;
+        return new StockUpdate(lineNumber, productId, price, quantityDelta, codec.getError());
+    }
+    
+    // Line (or record) number in the feed, for error reports
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    public int getProductId() {
+        return productId;
+    }
+    
+    public boolean hasPrice() {
+        return !Double.isNaN(price);
+    }
+    
+    public double getPrice() {
+        return price;
+    }
+    
+    public int getQuantityDelta() {
+        return quantityDelta;
+    }
+    
+    // Parse error, or null for a well-formed record
+    public ValidationError getError() {
+        return error;
+    }
+    
+    @Override
+    public String toString() {
+        return productId + "," + (hasPrice() ? String.valueOf(price) : "") + "," + quantityDelta;
+    }
+}
@@ -0,0 +1,254 @@
+package service;
+
+import exception.DataFileException;
+import model.ProductCodec;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams supplier price/stock updates into a ProductManager in batches
+ * Demonstrates: Producer-consumer with backpressure, Batching, Socket I/O
+ *
+ * Readers (a file, or connections to a loopback socket) parse StockUpdate records and
+ * put them on a bounded queue; when it is full they block, so a fast feed can never run
+ * ahead of the store by more than the queue capacity. A single applier thread drains
+ * whatever has queued up (up to batchSize records) and commits it with one call to
+ * applyStockUpdates: one write lock, one file write and one published batch. Batches grow
+ * on their own when the feed is faster than the disk and shrink when it trickles in.
+ *
+ * Usage (headless):
+ *   java -cp target/classes service.UpdateFeed &lt;dataFile&gt; &lt;updatesFile&gt;
+ *   java -cp target/classes service.UpdateFeed &lt;dataFile&gt; --listen &lt;port&gt;
+ */
+public class UpdateFeed implements Closeable {
+    public static final int DEFAULT_BATCH_SIZE = 5000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 20000;
+    
+    private final ProductManager manager;
+    private final int batchSize;
+    private final BlockingQueue<StockUpdate> queue;
+    private final Thread applier;
+    private final LoadReport report;
+    
+    private volatile boolean closed;
+    private volatile ServerSocket server;
+    private final AtomicLong enqueued = new AtomicLong();
+    private long processed;      // Guarded by this
+    private long batches;        // Guarded by this
+    private DataFileException failure;  // Guarded by this; first persistence error
+    
+    public UpdateFeed(ProductManager manager) {
+        this(manager, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    public UpdateFeed(ProductManager manager, int batchSize, int queueCapacity) {
+        this.manager = manager;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.report = new LoadReport("update feed");
+        this.applier = new Thread(this::applyLoop, "update-feed");
+        this.applier.setDaemon(true);
+        this.applier.start();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2) {
+            ProductManager manager = new ProductManager(args[0]);
+            try (UpdateFeed feed = new UpdateFeed(manager)) {
+                long start = System.nanoTime();
+                LoadReport result = feed.applyFile(new File(args[1]));
+                System.out.printf("%s in %d ms, %d batches%n", result.getSummary(),
+                    (System.nanoTime() - start) / 1_000_000, feed.getBatchCount());
+                if (result.hasErrors()) {
+                    System.out.println(result.getDetails(20));
+                }
+            }
+        } else if (args.length == 3 && "--listen".equals(args[1])) {
+            ProductManager manager = new ProductManager(args[0]);
+            try (UpdateFeed feed = new UpdateFeed(manager)) {
+                System.out.println("Listening for updates on port " + feed.listen(Integer.parseInt(args[2])));
+                while (true) {
+                    Thread.sleep(1000);
+                    System.out.println(feed.getReport().getSummary() + ", " + feed.getBatchCount() + " batches");
+                }
+            }
+        } else {
+            System.err.println("Usage: UpdateFeed <dataFile> <updatesFile>");
+            System.err.println("       UpdateFeed <dataFile> --listen <port>");
+            System.exit(1);
+        }
+    }
+    
+    // Feed a whole file and wait until every record in it has been committed
+    public LoadReport applyFile(File file) throws DataFileException {
+        try (Reader reader = new FileReader(file)) {
+            feed(reader);
+        } catch (IOException e) {
+            throw new DataFileException("Error reading update file " + file.getName(), e);
+        }
+        flush();
+        return getReport();
+    }
+    
+    // Parse records from the reader onto the queue, blocking while it is full.
+    // Blank lines and lines starting with '#' are skipped.
+    public void feed(Reader source) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader
+            ? (BufferedReader) source : new BufferedReader(source);
+        ProductCodec codec = new ProductCodec();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            StockUpdate update = StockUpdate.parse(codec, line, lineNumber);
+            if (closed) {
+                throw new IOException("Update feed is closed");
+            }
+            enqueued.incrementAndGet();
+            try {
+                queue.put(update);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while queueing updates", e);
+            }
+        }
+    }
+    
+    // Accept feeds on a loopback port (0 picks a free one), one reader thread per connection.
+    // Returns the bound port.
+    public int listen(int port) throws IOException {
+        ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        server = socket;
+        Thread acceptor = new Thread(() -> {
+            while (!socket.isClosed()) {
+                try {
+                    Socket connection = socket.accept();
+                    Thread reader = new Thread(() -> readConnection(connection), "update-feed-connection");
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    if (!socket.isClosed()) {
+                        System.err.println("Update feed accept failed: " + e.getMessage());
+                    }
+                }
+            }
+        }, "update-feed-listener");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return socket.getLocalPort();
+    }
+    
+    private void readConnection(Socket connection) {
+        try (Socket socket = connection) {
+            feed(new InputStreamReader(socket.getInputStream()));
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Update feed connection failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Block until everything queued so far has been committed; rethrows a persistence failure
+    public void flush() throws DataFileException {
+        synchronized (this) {
+            long target = enqueued.get();
+            while (processed < target && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DataFileException("Interrupted while waiting for updates to be applied");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+    
+    // Cumulative applied/rejected records (with line numbers and error codes);
+    // only written by the applier, so read it after flush()
+    public LoadReport getReport() {
+        return report;
+    }
+    
+    public synchronized long getBatchCount() {
+        return batches;
+    }
+    
+    public int getQueuedCount() {
+        return queue.size();
+    }
+    
+    // Stop accepting input, commit what is already queued, then stop the applier
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (server != null) {
+            server.close();
+        }
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void applyLoop() {
+        List<StockUpdate> batch = new ArrayList<>(batchSize);
+        while (true) {
+            StockUpdate first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            batch.clear();
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            
+            // Readers keep filling the queue while the batch is committed
+            DataFileException error = null;
+            try {
+                manager.applyStockUpdates(batch, report);
+            } catch (DataFileException e) {
+                error = e;
+            }
+            synchronized (this) {
+                processed += batch.size();
+                batches++;
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                notifyAll();
+            }
+            if (error != null) {
+                System.err.println("Error applying update batch: " + error.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package ui;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import model.Product;
+import service.ProductSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Read-only ObservableList that fetches rows from a ProductSource one page at a time
+ * Demonstrates: Lazy loading, LRU caching, Background prefetching
+ * 
+ * A TableView only asks for the rows it is about to draw, so backing it with this list
+ * keeps just the pages around the viewport in memory: at most maxPages × pageSize
+ * products, however large the catalog is. Pages are only ever read on the prefetch
+ * thread: a row whose page is not cached yet is shown as an empty placeholder, and the
+ * page and its neighbours are fetched in the background, after which the rows are
+ * reported as updated on the FX thread. The FX thread never waits for the catalog.
+ * 
+ * refresh() keeps the cached pages on screen and reloads them in the background, firing
+ * update changes rather than replacing the whole list, so the table keeps its selection
+ * and scroll position.
+ * 
+ * Sorting is not supported (the list is read-only); disable it on the table columns.
+ */
+public class PagedProductList extends ObservableListBase<Product> {
+    private static final int DEFAULT_PAGE_SIZE = 256;
+    private static final int DEFAULT_MAX_PAGES = 64;
+    
+    private final ProductSource source;
+    private final int pageSize;
+    private final Map<Integer, List<Product>> pages;
+    private final ExecutorService prefetcher;
+    private final Executor fxThread;
+    private final Set<Integer> queued = new HashSet<>();  // Pages waiting for the prefetcher
+    
+    private int size;
+    private long generation;  // Bumped on refresh so stale loads are dropped
+    private long hits;
+    private long misses;
+    
+    public PagedProductList(ProductSource source) {
+        this(source, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+    
+    public PagedProductList(ProductSource source, int pageSize, int maxPages) {
+        this(source, pageSize, maxPages, Platform::runLater);
+    }
+    
+    // fxThread runs the change notifications; tests without a toolkit can pass Runnable::run
+    public PagedProductList(ProductSource source, int pageSize, int maxPages, Executor fxThread) {
+        this.source = source;
+        this.fxThread = fxThread;
+        this.pageSize = pageSize;
+        // Access-ordered LinkedHashMap evicting the least recently viewed page
+        this.pages = new LinkedHashMap<Integer, List<Product>>(maxPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Product>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "table-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.size = source.getProductCount();
+    }
+    
+    @Override
+    public Product get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+        }
+        int pageIndex = index / pageSize;
+        List<Product> page;
+        synchronized (pages) {
+            page = pages.get(pageIndex);
+            if (page != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (page == null) {
+            prefetch(pageIndex);
+            prefetch(pageIndex + 1);
+            prefetch(pageIndex - 1);
+            return null;  // Placeholder until the page arrives
+        }
+        int offset = index - pageIndex * pageSize;
+        // The catalog may have shrunk since the page was read; show an empty row until then
+        return offset < page.size() ? page.get(offset) : null;
+    }
+    
+    /**
+     * The row at the index, reading its page on the calling thread if it is not cached.
+     * For actions on the selected rows, which must not act on placeholders.
+     */
+    public Product fetch(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+        }
+        int pageIndex = index / pageSize;
+        List<Product> page;
+        long requested;
+        synchronized (pages) {
+            page = pages.get(pageIndex);
+            requested = generation;
+        }
+        if (page == null) {
+            page = source.getProductsInRange(pageIndex * pageSize, pageSize);
+            synchronized (pages) {
+                if (requested == generation) {
+                    pages.put(pageIndex, page);
+                }
+            }
+        }
+        int offset = index - pageIndex * pageSize;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Re-read the row count and reload the cached pages in the background. Must be called
+     * on the FX thread after the catalog changes. Rows at the end are reported as added
+     * or removed; the cached rows keep showing their old values until their page is
+     * reloaded and then are reported as updated.
+     */
+    public void refresh() {
+        int oldSize = size;
+        List<Integer> cached;
+        synchronized (pages) {
+            generation++;
+            cached = new ArrayList<>(pages.keySet());
+        }
+        size = source.getProductCount();
+        
+        if (size != oldSize) {
+            beginChange();
+            if (size < oldSize) {
+                nextRemove(size, Collections.nCopies(oldSize - size, (Product) null));
+            } else {
+                nextAdd(oldSize, size);
+            }
+            endChange();
+        }
+        for (int pageIndex : cached) {
+            queueLoad(pageIndex);
+        }
+    }
+    
+    public int getPageSize() {
+        return pageSize;
+    }
+    
+    // Fraction of row lookups served from the page cache
+    public double getHitRate() {
+        synchronized (pages) {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+    
+    public void dispose() {
+        prefetcher.shutdownNow();
+    }
+    
+    private void prefetch(int pageIndex) {
+        if (pageIndex < 0 || pageIndex * pageSize >= size) {
+            return;
+        }
+        synchronized (pages) {
+            if (pages.containsKey(pageIndex)) {
+                return;
+            }
+        }
+        queueLoad(pageIndex);
+    }
+    
+    // Queue a page for the prefetch thread unless it is already waiting there; the load
+    // reads the generation when it starts, so a page queued before a refresh is still fresh
+    private void queueLoad(int pageIndex) {
+        synchronized (pages) {
+            if (!queued.add(pageIndex)) {
+                return;
+            }
+        }
+        prefetcher.execute(() -> loadPage(pageIndex));
+    }
+    
+    // Runs on the prefetch thread
+    private void loadPage(int pageIndex) {
+        long requested;
+        synchronized (pages) {
+            queued.remove(pageIndex);
+            requested = generation;
+        }
+        List<Product> page = source.getProductsInRange(pageIndex * pageSize, pageSize);
+        synchronized (pages) {
+            if (requested != generation) {
+                return;  // A refresh queued this page again
+            }
+            pages.put(pageIndex, page);
+        }
+        fxThread.execute(() -> pageLoaded(pageIndex, requested));
+    }
+    
+    // Runs on the FX thread: redraw the rows of a page that arrived
+    private void pageLoaded(int pageIndex, long loadedGeneration) {
+        synchronized (pages) {
+            if (loadedGeneration != generation) {
+                return;
+            }
+        }
+        int from = pageIndex * pageSize;
+        int to = Math.min(from + pageSize, size);
+        if (from >= to) {
+            return;
+        }
+        beginChange();
+        for (int index = from; index < to; index++) {
+            nextUpdate(index);
+        }
+        endChange();
+    }
+}